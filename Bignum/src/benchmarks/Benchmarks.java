@@ -0,0 +1,301 @@
+package benchmarks;
+
+import bignum.UnsignedBigInt;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the operations of UnsignedBigInt against java.math.BigInteger as a baseline
+ * for operand sizes from 64 to 2^20 bits. Each measurement is warmed up first, then timed
+ * over several batches; the fastest batch gives the time per operation. Allocated bytes
+ * per operation and the collections run during the batches are reported alongside.
+ *
+ * Usage: java -cp Bignum.jar benchmarks.Benchmarks [-maxbits n] [operation ...]
+ */
+public class Benchmarks {
+
+    private static final int[] SIZES = {64, 256, 1024, 4096, 16384, 65536, 262144, 1048576};
+
+    private static final long WARMUP_NANOS = 200000000L;
+    private static final long BATCH_NANOS = 100000000L;
+    private static final int BATCHES = 5;
+
+    /**
+     * Results are written here so that the JIT cannot drop the measured calls
+     */
+    static volatile Object sink;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    interface Task {
+        Object run();
+    }
+
+    /**
+     * One benchmarked operation, prepared for a given operand size into a task for
+     * UnsignedBigInt and one for BigInteger
+     */
+    abstract static class Operation {
+
+        final String name;
+        final int maxBits;
+
+        Operation(String name, int maxBits) {
+            this.name = name;
+            this.maxBits = maxBits;
+        }
+
+        abstract Task[] prepare(int bits, Random r);
+    }
+
+    public static void main(String[] args) {
+        int maxBits = SIZES[SIZES.length - 1];
+        List<String> names = new ArrayList<String>();
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("-maxbits")) {
+                maxBits = Integer.parseInt(args[++i]);
+            } else {
+                names.add(args[i]);
+            }
+        }
+
+        System.out.printf("%-20s %8s %14s %14s %7s %12s %12s %5s %8s%n", "operation", "bits",
+                "UnsignedBigInt", "BigInteger", "ratio", "B/op", "B/op (base)", "gc", "gc ms");
+        Random r = new Random(1);
+        for(Operation op : operations()) {
+            if(!names.isEmpty() && !names.contains(op.name)) {
+                continue;
+            }
+            for(int bits : SIZES) {
+                if(bits > op.maxBits || bits > maxBits) {
+                    break;
+                }
+                Task[] tasks = op.prepare(bits, r);
+                Result ours = measure(tasks[0]);
+                Result base = measure(tasks[1]);
+                System.out.printf("%-20s %8d %14s %14s %7.2f %12d %12d %5d %8d%n", op.name, bits,
+                        format(ours.nanos), format(base.nanos), ours.nanos / base.nanos, ours.bytes, base.bytes,
+                        ours.collections + base.collections, ours.gcMillis + base.gcMillis);
+            }
+        }
+    }
+
+    private static List<Operation> operations() {
+        return Arrays.asList(
+            new Operation("add", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    return binary(bits, bits, r, new Binary() {
+                        public Object run(UnsignedBigInt a, UnsignedBigInt b) { return a.add(b); }
+                        public Object run(BigInteger a, BigInteger b) { return a.add(b); }
+                    });
+                }
+            },
+            new Operation("subtract", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    return binary(bits + 1, bits, r, new Binary() {
+                        public Object run(UnsignedBigInt a, UnsignedBigInt b) { return a.subtract(b); }
+                        public Object run(BigInteger a, BigInteger b) { return a.subtract(b); }
+                    });
+                }
+            },
+            new Operation("multiply", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    return binary(bits, bits, r, new Binary() {
+                        public Object run(UnsignedBigInt a, UnsignedBigInt b) { return a.multiply(b); }
+                        public Object run(BigInteger a, BigInteger b) { return a.multiply(b); }
+                    });
+                }
+            },
+            new Operation("karatsuba", 262144) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    return binary(bits, bits, r, new Binary() {
+                        public Object run(UnsignedBigInt a, UnsignedBigInt b) { return a.karatsuba(b); }
+                        public Object run(BigInteger a, BigInteger b) { return a.multiply(b); }
+                    });
+                }
+            },
+            new Operation("divideAndRemainder", 262144) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    return binary(2 * bits, bits, r, new Binary() {
+                        public Object run(UnsignedBigInt a, UnsignedBigInt b) { return a.divideAndRemainder(b); }
+                        public Object run(BigInteger a, BigInteger b) { return a.divideAndRemainder(b); }
+                    });
+                }
+            },
+            new Operation("modPow", 4096) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    BigInteger m = new BigInteger(bits, r).setBit(bits - 1).setBit(0);
+                    final BigInteger x = new BigInteger(bits, r).mod(m);
+                    final BigInteger e = new BigInteger(bits, r);
+                    final BigInteger bm = m;
+                    final UnsignedBigInt ux = convert(x);
+                    final UnsignedBigInt ue = convert(e);
+                    final UnsignedBigInt um = convert(m);
+                    return new Task[] {
+                        new Task() { public Object run() { return ux.modPow(ue, um); } },
+                        new Task() { public Object run() { return x.modPow(e, bm); } }
+                    };
+                }
+            },
+            new Operation("pow", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    // a 64-bit base raised to a result of about the given size
+                    final BigInteger x = new BigInteger(64, r).setBit(63);
+                    final int e = Math.max(bits / 64, 1);
+                    final UnsignedBigInt ux = convert(x);
+                    final UnsignedBigInt ue = new UnsignedBigInt(e);
+                    return new Task[] {
+                        new Task() { public Object run() { return ux.pow(ue); } },
+                        new Task() { public Object run() { return x.pow(e); } }
+                    };
+                }
+            },
+            new Operation("toString", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    final BigInteger x = new BigInteger(bits, r).setBit(bits - 1);
+                    final UnsignedBigInt ux = convert(x);
+                    return new Task[] {
+                        new Task() { public Object run() { return ux.toString(); } },
+                        new Task() { public Object run() { return x.toString(); } }
+                    };
+                }
+            },
+            new Operation("String constructor", Integer.MAX_VALUE) {
+                @Override
+                Task[] prepare(int bits, Random r) {
+                    final String s = new BigInteger(bits, r).setBit(bits - 1).toString();
+                    return new Task[] {
+                        new Task() { public Object run() { return new UnsignedBigInt(s); } },
+                        new Task() { public Object run() { return new BigInteger(s); } }
+                    };
+                }
+            });
+    }
+
+    interface Binary {
+        Object run(UnsignedBigInt a, UnsignedBigInt b);
+        Object run(BigInteger a, BigInteger b);
+    }
+
+    /**
+     * Prepares a binary operation on random operands of exactly abits and bbits bits
+     */
+    private static Task[] binary(int abits, int bbits, Random r, final Binary op) {
+        final BigInteger a = new BigInteger(abits, r).setBit(abits - 1);
+        final BigInteger b = new BigInteger(bbits, r).setBit(bbits - 1);
+        final UnsignedBigInt ua = convert(a);
+        final UnsignedBigInt ub = convert(b);
+        return new Task[] {
+            new Task() { public Object run() { return op.run(ua, ub); } },
+            new Task() { public Object run() { return op.run(a, b); } }
+        };
+    }
+
+    private static UnsignedBigInt convert(BigInteger x) {
+        UnsignedBigInt u = new UnsignedBigInt(x.toString());
+        if(!u.toString().equals(x.toString())) {
+            throw new IllegalStateException("Conversion of " + x.bitLength() + "-bit operand failed");
+        }
+        return u;
+    }
+
+    private static final class Result {
+        double nanos;
+        long bytes;
+        long collections;
+        long gcMillis;
+    }
+
+    /**
+     * Runs the task until the warmup time has passed, finding the number of calls that
+     * takes about BATCH_NANOS, and then times BATCHES batches of that many calls
+     */
+    private static Result measure(Task task) {
+        long calls = 1;
+        long start = System.nanoTime();
+        while(true) {
+            long t = System.nanoTime();
+            for(long i = 0; i < calls; i++) {
+                sink = task.run();
+            }
+            long elapsed = System.nanoTime() - t;
+            if(System.nanoTime() - start >= WARMUP_NANOS && elapsed >= BATCH_NANOS / 2) {
+                break;
+            }
+            if(elapsed < BATCH_NANOS) {
+                calls *= 2;
+            }
+        }
+
+        Result result = new Result();
+        result.nanos = Double.MAX_VALUE;
+        long collections = collections();
+        long gcMillis = gcMillis();
+        long allocated = allocatedBytes();
+        for(int batch = 0; batch < BATCHES; batch++) {
+            long t = System.nanoTime();
+            for(long i = 0; i < calls; i++) {
+                sink = task.run();
+            }
+            result.nanos = Math.min(result.nanos, (double)(System.nanoTime() - t) / calls);
+        }
+        result.bytes = allocated < 0 ? -1 : (allocatedBytes() - allocated) / (calls * BATCHES);
+        result.collections = collections() - collections;
+        result.gcMillis = gcMillis() - gcMillis;
+        return result;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, -1 if the JVM does not
+     * support the measurement
+     */
+    private static long allocatedBytes() {
+        if(THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean)THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long time = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private static String format(double nanos) {
+        if(nanos < 1e3) {
+            return String.format("%.1f ns", nanos);
+        }
+        if(nanos < 1e6) {
+            return String.format("%.2f us", nanos / 1e3);
+        }
+        if(nanos < 1e9) {
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,328 @@
+package bignum;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BinaryCodec class for storing sequences of UnsignedBigInts in a compact binary form.
+ * Every value is written as a four-byte length n followed by the n bytes of the value as
+ * written by UnsignedBigInt.write, both in the byte order of the codec. Sequences can be
+ * written to and read from ByteBuffers, channels and memory-mapped regions of files
+ * without converting the values to strings. Lengths read from channels are checked against
+ * a maximum before any buffer is allocated for the value. Instances are immutable and may
+ * be shared by threads.
+ *
+ */
+public class BinaryCodec {
+
+    /**
+     * Size of the buffer through which channels are written and read
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest region of a file mapped at once
+     */
+    private static final long MAX_MAPPING = Integer.MAX_VALUE;
+
+    /**
+     * Largest value length in bytes accepted by the constructors without a maximum
+     */
+    public static final int DEFAULT_MAX_LENGTH = 1 << 26;
+
+    private final ByteOrder order;
+
+    private final int maxLength;
+
+    /**
+     * Creates a new BinaryCodec writing big-endian lengths and values
+     */
+    public BinaryCodec() {
+        this(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Creates a new BinaryCodec writing lengths and values in the given byte order
+     * @param order byte order of the encoded form
+     */
+    public BinaryCodec(ByteOrder order) {
+        this(order, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Creates a new BinaryCodec writing lengths and values in the given byte order and
+     * reading values of at most maxLength bytes from channels
+     * @param order byte order of the encoded form
+     * @param maxLength largest accepted value length in bytes
+     * @throws IllegalArgumentException if maxLength is negative
+     */
+    public BinaryCodec(ByteOrder order, int maxLength) {
+        if(maxLength < 0) {
+            throw new IllegalArgumentException("Negative maximum length");
+        }
+        this.order = order;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the byte order of the encoded form
+     */
+    public ByteOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the largest value length in bytes accepted when reading from channels
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the number of bytes taken by the encoded form of x
+     */
+    public int encodedLength(UnsignedBigInt x) {
+        return 4 + x.byteLength();
+    }
+
+    /**
+     * Returns the number of bytes taken by the encoded form of all values
+     */
+    public long encodedLength(Iterable<UnsignedBigInt> values) {
+        long length = 0;
+        for(UnsignedBigInt x : values) {
+            length += encodedLength(x);
+        }
+        return length;
+    }
+
+    /**
+     * Writes x to the buffer at its position. The byte order of the buffer is left
+     * unchanged.
+     * @throws java.nio.BufferOverflowException if the encoded form does not fit in buf
+     */
+    public void write(UnsignedBigInt x, ByteBuffer buf) {
+        ByteOrder previous = buf.order();
+        buf.order(order);
+        try {
+            buf.putInt(x.byteLength());
+            x.write(buf);
+        } finally {
+            buf.order(previous);
+        }
+    }
+
+    /**
+     * Reads a value from the buffer at its position. The byte order of the buffer is left
+     * unchanged.
+     * @return UnsignedBigInt read
+     * @throws java.nio.BufferUnderflowException if the buffer ends within the value
+     * @throws IllegalArgumentException if the length read is negative
+     */
+    public UnsignedBigInt read(ByteBuffer buf) {
+        ByteOrder previous = buf.order();
+        buf.order(order);
+        try {
+            return UnsignedBigInt.read(buf, buf.getInt());
+        } finally {
+            buf.order(previous);
+        }
+    }
+
+    /**
+     * Writes all values to the buffer at its position
+     * @throws java.nio.BufferOverflowException if the values do not fit in buf
+     */
+    public void writeAll(Iterable<UnsignedBigInt> values, ByteBuffer buf) {
+        for(UnsignedBigInt x : values) {
+            write(x, buf);
+        }
+    }
+
+    /**
+     * Reads values from the buffer until no bytes remain
+     * @return list of UnsignedBigInts in the order read
+     * @throws java.nio.BufferUnderflowException if the buffer ends within a value
+     * @throws IllegalArgumentException if a length read is negative
+     */
+    public List<UnsignedBigInt> readAll(ByteBuffer buf) {
+        List<UnsignedBigInt> values = new ArrayList<UnsignedBigInt>();
+        while(buf.hasRemaining()) {
+            values.add(read(buf));
+        }
+        return values;
+    }
+
+    /**
+     * Writes all values to the channel through a direct buffer of BUFFER_SIZE bytes.
+     * Values larger than the buffer are written from a buffer of their own.
+     * @return number of bytes written
+     * @throws IOException if writing to the channel fails
+     */
+    public long writeAll(Iterable<UnsignedBigInt> values, WritableByteChannel ch) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long written = 0;
+        for(UnsignedBigInt x : values) {
+            int length = encodedLength(x);
+            if(length > buf.remaining()) {
+                flush(buf, ch);
+            }
+            if(length > buf.capacity()) {
+                ByteBuffer large = ByteBuffer.allocate(length);
+                write(x, large);
+                flush(large, ch);
+            } else {
+                write(x, buf);
+            }
+            written += length;
+        }
+        flush(buf, ch);
+        return written;
+    }
+
+    /**
+     * Reads values from the channel until its end
+     * @return list of UnsignedBigInts in the order read
+     * @throws EOFException if the channel ends within a value
+     * @throws IOException if reading from the channel fails or a length read is negative
+     * or above the maximum length of this codec
+     */
+    public List<UnsignedBigInt> readAll(ReadableByteChannel ch) throws IOException {
+        List<UnsignedBigInt> values = new ArrayList<UnsignedBigInt>();
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE).order(order);
+        buf.flip();
+        while(true) {
+            buf = fill(buf, ch, 4);
+            if(!buf.hasRemaining()) {
+                return values;
+            }
+            if(buf.remaining() < 4) {
+                throw new EOFException("Channel ends within a length");
+            }
+            int length = buf.getInt();
+            if(length < 0) {
+                throw new IOException("Negative length " + length);
+            }
+            if(length > maxLength) {
+                throw new IOException("Length " + length + " exceeds the maximum of " + maxLength);
+            }
+            if(ch instanceof FileChannel && length - buf.remaining() > remaining((FileChannel)ch)) {
+                throw new EOFException("Channel ends within a value");
+            }
+            buf = fill(buf, ch, length);
+            if(buf.remaining() < length) {
+                throw new EOFException("Channel ends within a value");
+            }
+            values.add(UnsignedBigInt.read(buf, length));
+        }
+    }
+
+    /**
+     * Writes all values to the file from the given position on through memory-mapped
+     * regions of at most 2^31 - 1 bytes, extending the file as needed
+     * @return number of bytes written
+     * @throws IOException if mapping the file fails
+     */
+    public long writeMapped(Iterable<UnsignedBigInt> values, FileChannel ch, long position) throws IOException {
+        long total = encodedLength(values);
+        long end = position + total;
+        MappedByteBuffer buf = null;
+        long start = position;
+        for(UnsignedBigInt x : values) {
+            int length = encodedLength(x);
+            if(buf == null || length > buf.remaining()) {
+                if(buf != null) {
+                    start += buf.position();
+                }
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, start, Math.max(Math.min(end - start, MAX_MAPPING), length));
+            }
+            write(x, buf);
+        }
+        return total;
+    }
+
+    /**
+     * Reads the values stored in size bytes of the file from the given position on through
+     * memory-mapped regions of at most 2^31 - 1 bytes
+     * @return list of UnsignedBigInts in the order read
+     * @throws EOFException if the region ends within a value
+     * @throws IOException if mapping the file fails or a length read is negative
+     */
+    public List<UnsignedBigInt> readMapped(FileChannel ch, long position, long size) throws IOException {
+        List<UnsignedBigInt> values = new ArrayList<UnsignedBigInt>();
+        long end = position + size;
+        long start = position;
+        while(start < end) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(end - start, MAX_MAPPING));
+            buf.order(order);
+            int consumed = 0;
+            while(buf.remaining() >= 4) {
+                int length = buf.getInt(consumed);
+                if(length < 0) {
+                    throw new IOException("Negative length " + length);
+                }
+                if(buf.remaining() - 4 < length) {
+                    break;
+                }
+                values.add(read(buf));
+                consumed = buf.position();
+            }
+            if(consumed == 0) {
+                throw new EOFException("Region ends within a value");
+            }
+            start += consumed;
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of bytes of the file after the position of the channel
+     */
+    private static long remaining(FileChannel ch) throws IOException {
+        return Math.max(ch.size() - ch.position(), 0);
+    }
+
+    /**
+     * Writes the bytes between position and limit of buf to the channel and clears buf
+     */
+    private static void flush(ByteBuffer buf, WritableByteChannel ch) throws IOException {
+        buf.flip();
+        while(buf.hasRemaining()) {
+            ch.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Reads from the channel until at least n bytes remain in the buffer or the channel
+     * ends, replacing the buffer with a larger one if n exceeds its capacity
+     * @return buffer holding the unread bytes between its position and limit
+     */
+    private ByteBuffer fill(ByteBuffer buf, ReadableByteChannel ch, int n) throws IOException {
+        if(buf.remaining() >= n) {
+            return buf;
+        }
+        if(n > buf.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(n).order(order);
+            larger.put(buf);
+            buf = larger;
+        } else {
+            buf.compact();
+        }
+        while(buf.position() < n) {
+            if(ch.read(buf) < 0) {
+                break;
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+}
@@ -4,6 +4,12 @@ public class BitArray {
 
     private long[] a;
     
+    /**
+     * Number of words up to and including the most significant non-zero word, all words
+     * from this index on are zero
+     */
+    private int used;
+    
     public BitArray() {
         a = new long[1];
     }
@@ -11,11 +17,24 @@ public class BitArray {
     public BitArray(long l) {
         a = new long[1];
         a[0] = l;
+        used = l != 0 ? 1 : 0;
     }
 
     public BitArray(BitArray ba) {
-        a = new long[ba.a.length];
-        System.arraycopy(ba.a, 0, a, 0, ba.a.length);
+        a = new long[Math.max(ba.used, 1)];
+        System.arraycopy(ba.a, 0, a, 0, ba.used);
+        used = ba.used;
+    }
+    
+    /**
+     * Creates a new BitArray backed by the given little-endian array of 64-bit words.
+     * The array is not copied.
+     * @param words words of the new BitArray, least significant word first
+     */
+    BitArray(long[] words) {
+        a = words.length > 0 ? words : new long[1];
+        used = a.length;
+        normalize();
     }
     
     private void expand(int w) {
@@ -25,84 +44,229 @@ public class BitArray {
         this.a = newArray;
     }
     
+    /**
+     * Lowers used past any zero words at the top
+     */
+    private void normalize() {
+        while(used > 0 && a[used - 1] == 0) {
+            used--;
+        }
+    }
+    
+    /**
+     * Returns the number of bits up to and including the most significant set bit
+     * @return bit length of this bit array, zero if no bit is set
+     */
     public int length() {
-        for(int i = a.length - 1; i >= 0; i--) {
-            if(a[i] != 0) {
-                for(int j = 63; j >= 0; j--) {
-                    if((a[i] & (1L << (j % 64))) != 0) {
-                        return (i * 64) + j + 1;
-                    }
-                }
-            }
+        if(used == 0) {
+            return 0;
         }
-        return 0;
+        return used * 64 - Long.numberOfLeadingZeros(a[used - 1]);
+    }
+    
+    /**
+     * Returns the number of words up to and including the most significant non-zero word
+     * @return number of significant words in this bit array
+     */
+    int wordLength() {
+        return used;
+    }
+    
+    /**
+     * Returns the backing word array of this bit array, least significant word first.
+     * The array may contain zero words above wordLength().
+     * @return backing word array
+     */
+    long[] words() {
+        return a;
     }
     
     public void clear() {
-        for(int i = 0; i < a.length; i++) {
+        for(int i = 0; i < used; i++) {
             a[i] = 0;
         }
+        used = 0;
     }
     
     public void setBit(int i, int b) {
-        int w = (int)Math.floor(i / 64.0f);
+        int w = i >>> 6;
+        if(b == 1) {
+            if(w >= a.length) {
+                expand(w);
+            }
+            a[w] |= (1L << i);
+            used = Math.max(used, w + 1);
+        } else if(w < used) {
+            a[w] &= ~(1L << i);
+            normalize();
+        }
+    }
+    
+    public int getBit(int i) {
+        int w = i >>> 6;
+        if(w >= used) {
+            return 0;
+        }
+        return (a[w] & (1L << i)) == 0 ? 0 : 1;
+    }
+    
+    /**
+     * Flips bit i of this bit array
+     * @param i index of the bit to flip
+     */
+    public void flipBit(int i) {
+        int w = i >>> 6;
         if(w >= a.length) {
             expand(w);
         }
-        if(b == 1) {
-            a[w] |= (1L << (i % 64));
+        a[w] ^= (1L << i);
+        if(w >= used) {
+            used = w + 1;
         } else {
-            a[w] &= ~(1L << (i % 64));
+            normalize();
         }
     }
     
-    public int getBit(int i) {
-        int w = (int)Math.floor(i / 64.0f);
-        if(w >= a.length) {
-            return 0;
+    /**
+     * Returns the number of set bits in this bit array
+     * @return number of one bits
+     */
+    public int bitCount() {
+        int count = 0;
+        for(int i = 0; i < used; i++) {
+            count += Long.bitCount(a[i]);
         }
-        return (a[w] & (1L << (i % 64))) == 0 ? 0 : 1;
+        return count;
     }
     
-    public void shiftLeft() {
-        int lowBit = 0;
-        int highBit = 0;
-        for(int i = 0; i < a.length; i++) {
-            lowBit = highBit;
-            highBit = getBit((i * 64) + 63);
-            a[i] <<= 1L;
-            setBit(i * 64, lowBit);
-            
-            if(highBit > 0 && i == a.length - 1) {
-                expand(0);
+    /**
+     * Returns the index of the least significant set bit in this bit array
+     * @return index of the lowest one bit, -1 if no bit is set
+     */
+    public int getLowestSetBit() {
+        for(int i = 0; i < used; i++) {
+            if(a[i] != 0) {
+                return i * 64 + Long.numberOfTrailingZeros(a[i]);
             }
         }
+        return -1;
+    }
+    
+    /**
+     * Sets this bit array to the bitwise AND of itself and the bit array b
+     * @param b bit array to AND with
+     */
+    public void and(BitArray b) {
+        int len = Math.min(used, b.used);
+        for(int i = 0; i < len; i++) {
+            a[i] &= b.a[i];
+        }
+        for(int i = len; i < used; i++) {
+            a[i] = 0;
+        }
+        used = len;
+        normalize();
+    }
+    
+    /**
+     * Sets this bit array to the bitwise OR of itself and the bit array b
+     * @param b bit array to OR with
+     */
+    public void or(BitArray b) {
+        if(b.used > a.length) {
+            expand(b.used - 1);
+        }
+        for(int i = 0; i < b.used; i++) {
+            a[i] |= b.a[i];
+        }
+        used = Math.max(used, b.used);
+    }
+    
+    /**
+     * Sets this bit array to the bitwise XOR of itself and the bit array b
+     * @param b bit array to XOR with
+     */
+    public void xor(BitArray b) {
+        if(b.used > a.length) {
+            expand(b.used - 1);
+        }
+        for(int i = 0; i < b.used; i++) {
+            a[i] ^= b.a[i];
+        }
+        used = Math.max(used, b.used);
+        normalize();
+    }
+    
+    /**
+     * Clears every bit of this bit array that is set in the bit array b
+     * @param b bit array whose set bits are cleared
+     */
+    public void andNot(BitArray b) {
+        int len = Math.min(used, b.used);
+        for(int i = 0; i < len; i++) {
+            a[i] &= ~b.a[i];
+        }
+        normalize();
+    }
+    
+    public void shiftLeft() {
+        shiftLeft(1);
     }
     
     public void shiftLeft64() {
-        if(Math.floor(length() / 64.0f) >= a.length - 1) {
-            expand(0);
+        shiftLeft(64);
+    }
+    
+    /**
+     * Shifts this bit array left by n bits, moving whole words first and the remaining
+     * bit offset in a single pass
+     * @param n non-negative number of bits to shift
+     */
+    public void shiftLeft(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative shift distance");
         }
-        
-        long high = 0;
-        long low = 0;
-        
-        for(int i = 0; i < a.length; i++) {
-            low = high;
-            high = a[i];
-            a[i] = low;
+        if(used == 0 || n == 0) {
+            return;
         }
+        int words = n >>> 6;
+        int len = used + words + 1;
+        if(len > a.length) {
+            expand(len - 1);
+        }
+        a[used + words] = LimbMath.shiftLeft(a, used, n & 63, a, words);
+        for(int i = 0; i < words; i++) {
+            a[i] = 0;
+        }
+        used = len;
+        normalize();
     }
     
     public void shiftRight() {
-        int lowBit = 0;
-        int highBit = 0;
-        for(int i = a.length - 1; i >= 0; i--) {
-            highBit = lowBit;
-            lowBit = getBit(i * 64);
-            a[i] >>>= 1L;
-            setBit((i * 64) + 63, highBit);
+        shiftRight(1);
+    }
+    
+    /**
+     * Shifts this bit array right by n bits, moving whole words first and the remaining
+     * bit offset in a single pass. Bits shifted out are lost.
+     * @param n non-negative number of bits to shift
+     */
+    public void shiftRight(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative shift distance");
+        }
+        int words = n >>> 6;
+        if(words >= used) {
+            clear();
+            return;
+        }
+        int len = used - words;
+        LimbMath.shiftRight(a, words, len, n & 63, a);
+        for(int i = len; i < used; i++) {
+            a[i] = 0;
         }
+        used = len;
+        normalize();
     }
     
     /**
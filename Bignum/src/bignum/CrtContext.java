@@ -0,0 +1,79 @@
+package bignum;
+
+/**
+ * The CrtContext class for exponentiation modulo a product n = p * q of two distinct primes,
+ * as in RSA decryption. Instead of one exponentiation modulo n, x^d is computed modulo p
+ * and modulo q with exponents reduced modulo p - 1 and q - 1, and the halves are recombined
+ * with Garner's formula (HAC 14.75). Both halves work on operands of half the size, which
+ * makes the whole about four times faster.
+ *
+ */
+public class CrtContext {
+
+    private final ModContext p;
+
+    private final ModContext q;
+
+    private final UnsignedBigInt pMinusOne;
+
+    private final UnsignedBigInt qMinusOne;
+
+    /**
+     * q^-1 mod p
+     */
+    private final UnsignedBigInt qInverse;
+
+    private final UnsignedBigInt modulus;
+
+    /**
+     * Creates a new CrtContext for the modulus p * q
+     * @param p UnsignedBigInt containing prime p
+     * @param q UnsignedBigInt containing prime q, different from p
+     * @throws ArithmeticException if p and q are not coprime
+     */
+    public CrtContext(UnsignedBigInt p, UnsignedBigInt q) {
+        this.p = new ModContext(p);
+        this.q = new ModContext(q);
+        this.pMinusOne = p.subtract(UnsignedBigInt.ONE);
+        this.qMinusOne = q.subtract(UnsignedBigInt.ONE);
+        this.qInverse = q.modInverse(p);
+        this.modulus = p.multiply(q);
+    }
+
+    /**
+     * Returns the modulus of this CrtContext
+     * @return UnsignedBigInt containing modulus p * q
+     */
+    public UnsignedBigInt getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Raises the UnsignedBigInt x to the power d modulo p * q
+     * @param x UnsignedBigInt containing base x
+     * @param d UnsignedBigInt containing exponent d
+     * @return UnsignedBigInt whose value is (x^d mod p * q)
+     */
+    public UnsignedBigInt modPow(UnsignedBigInt x, UnsignedBigInt d) {
+        UnsignedBigInt mp = p.modPow(x, reduceExponent(d, pMinusOne));
+        UnsignedBigInt mq = q.modPow(x, reduceExponent(d, qMinusOne));
+        UnsignedBigInt mqp = p.reduce(mq);
+
+        // h = qInverse * (mp - mq) mod p
+        UnsignedBigInt diff = mp.smallerThan(mqp) ? mp.add(p.getModulus()).subtract(mqp) : mp.subtract(mqp);
+        UnsignedBigInt h = p.mulMod(qInverse, diff);
+        return mq.add(h.multiply(q.getModulus()));
+    }
+
+    /**
+     * Reduces the positive exponent d modulo the order bound k = prime - 1 into [1, k], so
+     * that bases divisible by the prime still give zero; zero stays zero
+     */
+    private static UnsignedBigInt reduceExponent(UnsignedBigInt d, UnsignedBigInt k) {
+        UnsignedBigInt r = d.mod(k);
+        if(r.bitLength() == 0 && d.bitLength() != 0) {
+            return k;
+        }
+        return r;
+    }
+}
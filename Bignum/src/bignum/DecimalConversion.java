@@ -0,0 +1,279 @@
+package bignum;
+
+import java.util.Arrays;
+
+/**
+ * Conversion of limb arrays from and to decimal strings. Mid-sized values are converted
+ * in chunks of 18 decimal digits, one multiplication or division by 10^18 per chunk.
+ * Larger values are split in halves at a power 10^(18 * 2^k), which are cached, so that
+ * the work is done by the fast multiplication and division of large operands.
+ */
+final class DecimalConversion {
+
+    /**
+     * Number of decimal digits in a chunk
+     */
+    private static final int CHUNK_DIGITS = 18;
+
+    /**
+     * Smallest length in limbs for which a split at a power of ten makes progress
+     */
+    private static final int MIN_SPLIT_LENGTH = 2;
+
+    /**
+     * 10^i for i <= CHUNK_DIGITS
+     */
+    private static final long[] POWERS_OF_TEN = new long[CHUNK_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for(int i = 1; i <= CHUNK_DIGITS; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * powers[k] = 10^(CHUNK_DIGITS * 2^k) without leading zero limbs, extended on demand
+     */
+    private static volatile long[][] powers = {{POWERS_OF_TEN[CHUNK_DIGITS]}};
+
+    /**
+     * fractions[k] = Newton.fraction(10^(CHUNK_DIGITS * 2^k)) for the powers divided by
+     * Newton iteration, null until first needed
+     */
+    private static volatile UnsignedBigInt[] fractions = new UnsignedBigInt[0];
+
+    private DecimalConversion() {
+    }
+
+    /**
+     * Parses the decimal string s, which may only contain the digits 0 to 9. The empty
+     * string is parsed as zero.
+     * @return array of limbs containing the value of s
+     * @throws NumberFormatException if s contains any other character
+     */
+    static long[] parse(String s) {
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c < '0' || c > '9') {
+                throw new NumberFormatException("For input string: \"" + s + "\"");
+            }
+        }
+        return parse(s, 0, s.length());
+    }
+
+    /**
+     * Formats the first xlen limbs of x as a decimal string without leading zeros
+     */
+    static String toString(long[] x, int xlen) {
+        xlen = length(x, xlen);
+        if(xlen == 0) {
+            return "0";
+        }
+        StringBuilder sb = new StringBuilder();
+        format(x, xlen, 0, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Parses the digits of s from index from (inclusive) to index to (exclusive)
+     */
+    private static long[] parse(String s, int from, int to) {
+        int digits = to - from;
+        if(digits <= 19 * Math.max(UnsignedBigInt.RADIX_CONVERSION_THRESHOLD, MIN_SPLIT_LENGTH)) {
+            return parseChunked(s, from, to);
+        }
+
+        // the lower part gets the largest cached power of ten that leaves a non-empty upper part
+        int k = 0;
+        while(CHUNK_DIGITS << (k + 1) < digits) {
+            k++;
+        }
+        int split = to - (CHUNK_DIGITS << k);
+        long[] high = parse(s, from, split);
+        long[] low = parse(s, split, to);
+        int hlen = length(high, high.length);
+        if(hlen == 0) {
+            return low;
+        }
+
+        long[] p = power(k);
+        long[] r = LimbMath.multiply(high, hlen, p, p.length);
+        LimbMath.addAt(r, 0, low, length(low, low.length));
+        return r;
+    }
+
+    /**
+     * Parses the digits of s from index from (inclusive) to index to (exclusive) in chunks
+     * of CHUNK_DIGITS digits, the first chunk taking the remaining digits
+     */
+    private static long[] parseChunked(String s, int from, int to) {
+        // every limb holds more than 19 digits
+        long[] r = new long[(to - from) / 19 + 1];
+        int len = 0;
+        int i = from;
+        int chunk = (to - from) % CHUNK_DIGITS;
+        if(chunk == 0) {
+            chunk = CHUNK_DIGITS;
+        }
+        while(i < to) {
+            long value = 0;
+            for(int j = i; j < i + chunk; j++) {
+                value = value * 10 + (s.charAt(j) - '0');
+            }
+            long carry = LimbMath.multiplyByWord(r, len, POWERS_OF_TEN[chunk], value, r);
+            if(carry != 0) {
+                r[len++] = carry;
+            }
+            i += chunk;
+            chunk = CHUNK_DIGITS;
+        }
+        return r;
+    }
+
+    /**
+     * Appends the decimal digits of the first xlen limbs of x to sb. If width is positive,
+     * the digits are padded with leading zeros to exactly width digits, otherwise no
+     * leading zeros are written.
+     */
+    private static void format(long[] x, int xlen, int width, StringBuilder sb) {
+        xlen = length(x, xlen);
+        if(xlen < Math.max(UnsignedBigInt.RADIX_CONVERSION_THRESHOLD, MIN_SPLIT_LENGTH)) {
+            formatChunked(x, xlen, width, sb);
+            return;
+        }
+
+        // split at the largest cached power of ten of at most half the length of x
+        int k = 0;
+        while(power(k + 1).length <= (xlen + 1) / 2) {
+            k++;
+        }
+        long[][] qr = divideByPower(x, xlen, k);
+        int lowDigits = CHUNK_DIGITS << k;
+        format(qr[0], qr[0].length, width > 0 ? width - lowDigits : 0, sb);
+        format(qr[1], qr[1].length, lowDigits, sb);
+    }
+
+    /**
+     * Divides the first xlen limbs of x by power(k). From NEWTON_DIVISION_THRESHOLD limbs
+     * on the division multiplies with the cached reciprocal of the power, so that
+     * formatting costs a small multiple of a multiplication of the whole value.
+     * @return array containing the limbs of the quotient (index 0) and the remainder (index 1)
+     */
+    private static long[][] divideByPower(long[] x, int xlen, int k) {
+        long[] p = power(k);
+        int threshold = UnsignedBigInt.NEWTON_DIVISION_THRESHOLD;
+        if(p.length < threshold || xlen - p.length < threshold) {
+            return LimbMath.divideAndRemainder(x, xlen, p, p.length);
+        }
+        UnsignedBigInt[] qr = Newton.divideAndRemainder(valueOf(x, xlen), valueOf(p, p.length), fraction(k));
+        return new long[][] {limbs(qr[0]), limbs(qr[1])};
+    }
+
+    /**
+     * Appends the decimal digits of the first xlen limbs of x to sb, dividing by 10^18
+     * once per chunk. width is interpreted as in format.
+     */
+    private static void formatChunked(long[] x, int xlen, int width, StringBuilder sb) {
+        long[] t = new long[xlen];
+        System.arraycopy(x, 0, t, 0, xlen);
+        // every chunk of 18 digits takes more than 59 bits
+        long[] chunks = new long[xlen * 64 / 59 + 1];
+        int count = 0;
+        while(xlen > 0) {
+            chunks[count++] = LimbMath.divideByWord(t, xlen, POWERS_OF_TEN[CHUNK_DIGITS], t);
+            xlen = length(t, xlen);
+        }
+
+        String top = count > 0 ? Long.toString(chunks[count - 1]) : "";
+        int digits = top.length() + (count > 0 ? (count - 1) * CHUNK_DIGITS : 0);
+        for(int i = digits; i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(top);
+        for(int i = count - 2; i >= 0; i--) {
+            appendPadded(chunks[i], CHUNK_DIGITS, sb);
+        }
+    }
+
+    /**
+     * Appends the non-negative value v to sb, padded with leading zeros to width digits
+     */
+    private static void appendPadded(long v, int width, StringBuilder sb) {
+        String digits = Long.toString(v);
+        for(int i = digits.length(); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(digits);
+    }
+
+    /**
+     * Returns 10^(CHUNK_DIGITS * 2^k), computing and caching the missing powers by repeated
+     * squaring. The returned array must not be modified.
+     */
+    private static long[] power(int k) {
+        long[][] p = powers;
+        if(k < p.length) {
+            return p[k];
+        }
+        synchronized(DecimalConversion.class) {
+            p = powers;
+            if(k >= p.length) {
+                int i = p.length;
+                p = Arrays.copyOf(p, k + 1);
+                for(; i <= k; i++) {
+                    long[] square = LimbMath.square(p[i - 1], p[i - 1].length);
+                    p[i] = Arrays.copyOf(square, length(square, square.length));
+                }
+                powers = p;
+            }
+            return p[k];
+        }
+    }
+
+    /**
+     * Returns Newton.fraction(power(k)), computing and caching it if it is missing
+     */
+    private static UnsignedBigInt fraction(int k) {
+        UnsignedBigInt[] f = fractions;
+        if(k < f.length && f[k] != null) {
+            return f[k];
+        }
+        synchronized(DecimalConversion.class) {
+            f = fractions;
+            if(k >= f.length || f[k] == null) {
+                long[] p = power(k);
+                f = Arrays.copyOf(f, Math.max(f.length, k + 1));
+                f[k] = Newton.fraction(valueOf(p, p.length));
+                fractions = f;
+            }
+            return f[k];
+        }
+    }
+
+    /**
+     * Returns an UnsignedBigInt whose value is the first xlen limbs of x, which must not
+     * be modified while it is in use
+     */
+    private static UnsignedBigInt valueOf(long[] x, int xlen) {
+        return UnsignedBigInt.valueOf(new BitArray(xlen == x.length ? x : Arrays.copyOf(x, xlen)));
+    }
+
+    /**
+     * Returns the limbs of x without leading zero limbs
+     */
+    private static long[] limbs(UnsignedBigInt x) {
+        BitArray bits = x.bits();
+        return Arrays.copyOf(bits.words(), bits.wordLength());
+    }
+
+    /**
+     * Returns the number of limbs of the first xlen limbs of x without leading zero limbs
+     */
+    private static int length(long[] x, int xlen) {
+        while(xlen > 0 && x[xlen - 1] == 0) {
+            xlen--;
+        }
+        return xlen;
+    }
+}
@@ -0,0 +1,172 @@
+package bignum;
+
+/**
+ * The FixedBaseExponentiator class for raising one fixed base g to many different exponents
+ * modulo a fixed modulus m. The powers of g are precomputed once into a Lim-Lee comb table
+ * (HAC 14.117), after which an exponent of t bits needs about t / teeth squarings and as
+ * many multiplications, compared to t squarings for modPow.
+ * The table holds 2^teeth values of the size of the modulus. Instances are not modified
+ * after construction and may be shared by threads.
+ *
+ */
+public class FixedBaseExponentiator {
+
+    /**
+     * Number of teeth used by the constructor without a teeth argument
+     */
+    public static final int DEFAULT_TEETH = 6;
+
+    /**
+     * Largest number of teeth accepted, giving a table of 2^MAX_TEETH values
+     */
+    public static final int MAX_TEETH = 16;
+
+    private final UnsignedBigInt base;
+
+    private final ModContext context;
+
+    /**
+     * Largest exponent bit length handled by the comb, longer exponents use modPow
+     */
+    private final int maxExponentBits;
+
+    /**
+     * Number of bits in each of the teeth columns, ceil(maxExponentBits / teeth)
+     */
+    private final int spacing;
+
+    private final int teeth;
+
+    /**
+     * table[i] = g^(sum of 2^(j * spacing) over the set bits j of i) in the internal form
+     * of the context
+     */
+    private final long[][] table;
+
+    /**
+     * Creates a new FixedBaseExponentiator for the base g and the modulus m with a table
+     * of 2^DEFAULT_TEETH values
+     * @param g UnsignedBigInt containing base g
+     * @param m UnsignedBigInt containing modulus m
+     * @param maxExponentBits largest exponent bit length to precompute for
+     * @throws ArithmeticException if m is zero
+     */
+    public FixedBaseExponentiator(UnsignedBigInt g, UnsignedBigInt m, int maxExponentBits) {
+        this(g, m, maxExponentBits, DEFAULT_TEETH);
+    }
+
+    /**
+     * Creates a new FixedBaseExponentiator for the base g and the modulus m. The table takes
+     * 2^teeth times the size of the modulus in memory; every additional tooth halves the
+     * number of squarings per exponentiation.
+     * @param g UnsignedBigInt containing base g
+     * @param m UnsignedBigInt containing modulus m
+     * @param maxExponentBits largest exponent bit length to precompute for
+     * @param teeth number of teeth of the comb, between 1 and MAX_TEETH
+     * @throws ArithmeticException if m is zero
+     * @throws IllegalArgumentException if teeth or maxExponentBits is out of range
+     */
+    public FixedBaseExponentiator(UnsignedBigInt g, UnsignedBigInt m, int maxExponentBits, int teeth) {
+        if(teeth < 1 || teeth > MAX_TEETH) {
+            throw new IllegalArgumentException("Teeth must be between 1 and " + MAX_TEETH);
+        }
+        if(maxExponentBits < 1) {
+            throw new IllegalArgumentException("Maximum exponent length must be positive");
+        }
+        this.context = new ModContext(m);
+        this.base = context.reduce(g);
+        this.maxExponentBits = maxExponentBits;
+        this.teeth = teeth;
+        this.spacing = (maxExponentBits + teeth - 1) / teeth;
+        this.table = new long[1 << teeth][];
+
+        int n = context.length();
+        long[] t = new long[2 * n + 1];
+        long[] one = {1};
+        table[0] = new long[n];
+        context.toInternal(one, 1, table[0], t);
+
+        // table[1 << j] = g^(2^(j * spacing))
+        long[] power = new long[n];
+        context.toInternal(base.bits().words(), base.bits().wordLength(), power, t);
+        for(int j = 0; j < teeth; j++) {
+            if(j > 0) {
+                for(int i = 0; i < spacing; i++) {
+                    context.square(power, power, t);
+                }
+            }
+            table[1 << j] = power.clone();
+        }
+        for(int i = 3; i < table.length; i++) {
+            int low = i & -i;
+            if(low != i) {
+                table[i] = new long[n];
+                context.multiply(table[i ^ low], table[low], table[i], t);
+            }
+        }
+    }
+
+    /**
+     * Returns the base of this FixedBaseExponentiator
+     * @return UnsignedBigInt containing base g reduced modulo m
+     */
+    public UnsignedBigInt getBase() {
+        return base;
+    }
+
+    /**
+     * Returns the modulus of this FixedBaseExponentiator
+     * @return UnsignedBigInt containing modulus m
+     */
+    public UnsignedBigInt getModulus() {
+        return context.getModulus();
+    }
+
+    /**
+     * Raises the base g to the power represented by the UnsignedBigInt e modulo m. Exponents
+     * longer than the maximum exponent length given at construction fall back to modPow.
+     * @param e UnsignedBigInt containing exponent e
+     * @return UnsignedBigInt whose value is (g^e mod m)
+     */
+    public UnsignedBigInt modPow(UnsignedBigInt e) {
+        BitArray bits = e.bits();
+        int ebits = bits.length();
+        if(ebits > maxExponentBits) {
+            return context.modPow(base, e);
+        }
+
+        int n = context.length();
+        long[] words = bits.words();
+        long[] t = new long[2 * n + 1];
+        long[] result = new long[n];
+        System.arraycopy(table[0], 0, result, 0, n);
+
+        boolean started = false;
+        for(int column = Math.min(spacing, ebits) - 1; column >= 0; column--) {
+            if(started) {
+                context.square(result, result, t);
+            }
+            int index = 0;
+            for(int j = teeth - 1; j >= 0; j--) {
+                index = (index << 1) | testBit(words, ebits, j * spacing + column);
+            }
+            if(index != 0) {
+                context.multiply(result, table[index], result, t);
+                started = true;
+            }
+        }
+
+        context.fromInternal(result, result, t);
+        return UnsignedBigInt.valueOf(new BitArray(result));
+    }
+
+    /**
+     * Returns bit i of the exponent of ebits bits held in e
+     */
+    private static int testBit(long[] e, int ebits, int i) {
+        if(i >= ebits) {
+            return 0;
+        }
+        return (int)(e[i >>> 6] >>> i) & 1;
+    }
+}
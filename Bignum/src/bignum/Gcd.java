@@ -0,0 +1,203 @@
+package bignum;
+
+/**
+ * Greatest common divisors and modular inverses computed with binary algorithms on limb
+ * arrays. Each step is a subtraction and a shift, so no division is needed apart from
+ * an optional initial reduction of operands of very different lengths.
+ */
+final class Gcd {
+
+    private Gcd() {
+    }
+
+    /**
+     * Computes the greatest common divisor of the first xlen limbs of x and the first ylen
+     * limbs of y with the binary GCD algorithm (HAC 14.54). gcd(0, 0) is zero.
+     * @return array of limbs containing gcd(x, y)
+     */
+    static long[] gcd(long[] x, int xlen, long[] y, int ylen) {
+        xlen = length(x, xlen);
+        ylen = length(y, ylen);
+        if(xlen < ylen) {
+            return gcd(y, ylen, x, xlen);
+        }
+        if(ylen == 0) {
+            return copy(x, xlen, xlen);
+        }
+
+        long[] u;
+        long[] v = copy(y, ylen, ylen);
+        if(xlen > ylen + 1) {
+            // a single division brings both operands to the same length
+            u = LimbMath.divideAndRemainder(x, xlen, y, ylen)[1];
+            if(length(u, u.length) == 0) {
+                return v;
+            }
+        } else {
+            u = copy(x, xlen, xlen);
+        }
+        int ulen = length(u, u.length);
+        int vlen = ylen;
+
+        int k = Math.min(trailingZeros(u, ulen), trailingZeros(v, vlen));
+        ulen = shiftOutZeros(u, ulen);
+        vlen = shiftOutZeros(v, vlen);
+        while(true) {
+            int c = LimbMath.compare(u, ulen, v, vlen);
+            if(c == 0) {
+                break;
+            }
+            if(c < 0) {
+                long[] t = u;
+                u = v;
+                v = t;
+                int tlen = ulen;
+                ulen = vlen;
+                vlen = tlen;
+            }
+            LimbMath.subtract(u, ulen, v, vlen, u);
+            ulen = shiftOutZeros(u, length(u, ulen));
+        }
+
+        long[] r = new long[ulen + (k >>> 6) + 1];
+        r[ulen + (k >>> 6)] = LimbMath.shiftLeft(u, ulen, k & 63, r, k >>> 6);
+        return r;
+    }
+
+    /**
+     * Computes the inverse of the first alen limbs of a modulo the first mlen limbs of m.
+     * Odd moduli use the binary extended Euclidean algorithm, in which the cofactor of a
+     * is kept reduced modulo m and halved modulo m along with a. Even moduli are reduced
+     * to the odd modulus a (a^-1 mod m = (1 + m * (a - (m^-1 mod a))) / a).
+     * @return array of mlen limbs containing (a^-1 mod m)
+     * @throws ArithmeticException if m is zero or a is not invertible modulo m
+     */
+    static long[] modInverse(long[] a, int alen, long[] m, int mlen) {
+        mlen = length(m, mlen);
+        if(mlen == 0) {
+            throw new ArithmeticException("Modulus is zero");
+        }
+        long[] x = LimbMath.compare(a, alen, m, mlen) >= 0 ? LimbMath.divideAndRemainder(a, alen, m, mlen)[1] : copy(a, alen, mlen);
+        if(mlen == 1 && m[0] == 1) {
+            return new long[1];
+        }
+        if((m[0] & 1) != 0) {
+            return modInverseOdd(x, m, mlen);
+        }
+
+        int xlen = length(x, x.length);
+        if(xlen == 0 || (x[0] & 1) == 0) {
+            throw new ArithmeticException("Not invertible");
+        }
+        if(xlen == 1 && x[0] == 1) {
+            return copy(x, 1, mlen);
+        }
+        long[] y = modInverse(m, mlen, x, xlen);
+        long[] t = new long[xlen];
+        LimbMath.subtract(x, xlen, y, length(y, y.length), t);
+        long[] p = LimbMath.multiply(m, mlen, t, xlen);
+        LimbMath.addWord(p, p.length, 1, p);
+        long[] q = LimbMath.divideAndRemainder(p, p.length, x, xlen)[0];
+        return copy(q, Math.min(q.length, mlen), mlen);
+    }
+
+    /**
+     * Computes the inverse of the value a of n limbs, which is smaller than the odd
+     * modulus m of n limbs. Keeps x1 * a = u and x2 * a = v (mod m) while reducing
+     * u and v to zero and gcd(a, m).
+     */
+    private static long[] modInverseOdd(long[] a, long[] m, int n) {
+        long[] u = copy(a, n, n);
+        long[] v = copy(m, n, n);
+        long[] x1 = new long[n + 1];
+        long[] x2 = new long[n + 1];
+        x1[0] = 1;
+
+        while(length(u, n) != 0) {
+            while((u[0] & 1) == 0) {
+                LimbMath.shiftRight(u, n, 1, u);
+                half(x1, m, n);
+            }
+            while((v[0] & 1) == 0) {
+                LimbMath.shiftRight(v, n, 1, v);
+                half(x2, m, n);
+            }
+            if(LimbMath.compare(u, n, v, n) >= 0) {
+                LimbMath.subtract(u, n, v, n, u);
+                subtractMod(x1, x2, m, n);
+            } else {
+                LimbMath.subtract(v, n, u, n, v);
+                subtractMod(x2, x1, m, n);
+            }
+        }
+
+        if(length(v, n) != 1 || v[0] != 1) {
+            throw new ArithmeticException("Not invertible");
+        }
+        return copy(x2, n, n);
+    }
+
+    /**
+     * Replaces the value x below the odd modulus m with (x / 2 mod m)
+     */
+    private static void half(long[] x, long[] m, int n) {
+        if((x[0] & 1) != 0) {
+            x[n] = LimbMath.add(x, n, m, n, x);
+        }
+        LimbMath.shiftRight(x, n + 1, 1, x);
+    }
+
+    /**
+     * Replaces the value x below m with (x - y mod m), y also being below m
+     */
+    private static void subtractMod(long[] x, long[] y, long[] m, int n) {
+        if(LimbMath.compare(x, n, y, n) < 0) {
+            x[n] = LimbMath.add(x, n, m, n, x);
+        }
+        LimbMath.subtract(x, n + 1, y, n + 1, x);
+    }
+
+    /**
+     * Shifts the value of len limbs in x right past its trailing zero bits
+     * @return number of limbs in the shifted value
+     */
+    private static int shiftOutZeros(long[] x, int len) {
+        int tz = trailingZeros(x, len);
+        int words = tz >>> 6;
+        LimbMath.shiftRight(x, words, len - words, tz & 63, x);
+        for(int i = len - words; i < len; i++) {
+            x[i] = 0;
+        }
+        return length(x, len - words);
+    }
+
+    /**
+     * Returns the number of trailing zero bits of the non-zero value of len limbs in x
+     */
+    private static int trailingZeros(long[] x, int len) {
+        int i = 0;
+        while(x[i] == 0) {
+            i++;
+        }
+        return i * 64 + Long.numberOfTrailingZeros(x[i]);
+    }
+
+    /**
+     * Returns len lowered past any zero limbs at the top of x
+     */
+    private static int length(long[] x, int len) {
+        while(len > 0 && x[len - 1] == 0) {
+            len--;
+        }
+        return len;
+    }
+
+    /**
+     * Returns a new array of size limbs containing the first len limbs of x
+     */
+    private static long[] copy(long[] x, int len, int size) {
+        long[] r = new long[Math.max(size, 1)];
+        System.arraycopy(x, 0, r, 0, Math.min(len, size));
+        return r;
+    }
+}
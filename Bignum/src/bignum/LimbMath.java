@@ -0,0 +1,745 @@
+package bignum;
+
+/**
+ * Arithmetic kernels operating directly on little-endian arrays of 64-bit limbs.
+ * Limbs are treated as unsigned values; only the first len limbs of each array are read.
+ */
+final class LimbMath {
+
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+    
+    /**
+     * Smallest operand length in limbs for which a Karatsuba split makes progress
+     */
+    private static final int MIN_KARATSUBA_LENGTH = 4;
+    
+    /**
+     * Smallest operand length in limbs for which a Toom-Cook 3-way split makes progress
+     */
+    private static final int MIN_TOOM_COOK_LENGTH = 9;
+    
+    private LimbMath() {
+    }
+    
+    /**
+     * Compares the two limbs as unsigned 64-bit values
+     * @return true, if x is smaller than y when both are read as unsigned values
+     */
+    static boolean unsignedLess(long x, long y) {
+        return (x + Long.MIN_VALUE) < (y + Long.MIN_VALUE);
+    }
+    
+    /**
+     * Compares the first xlen limbs of x to the first ylen limbs of y. Zero limbs at
+     * the top of either array are ignored.
+     * @return negative, zero or positive, if x is smaller than, equal to or bigger than y
+     */
+    static int compare(long[] x, int xlen, long[] y, int ylen) {
+        while(xlen > 0 && x[xlen - 1] == 0) {
+            xlen--;
+        }
+        while(ylen > 0 && y[ylen - 1] == 0) {
+            ylen--;
+        }
+        if(xlen != ylen) {
+            return xlen < ylen ? -1 : 1;
+        }
+        for(int i = xlen - 1; i >= 0; i--) {
+            if(x[i] != y[i]) {
+                return unsignedLess(x[i], y[i]) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Returns the high 64 bits of the unsigned 128-bit product of x and y
+     * @param x unsigned multiplicand x
+     * @param y unsigned multiplier y
+     * @return high word of (x * y), the low word being x * y with wrap-around
+     */
+    static long multiplyHigh(long x, long y) {
+        long x0 = x & LOW_MASK;
+        long x1 = x >>> 32;
+        long y0 = y & LOW_MASK;
+        long y1 = y >>> 32;
+        
+        long p00 = x0 * y0;
+        long p01 = x0 * y1;
+        long p10 = x1 * y0;
+        long p11 = x1 * y1;
+        
+        long middle = (p00 >>> 32) + (p01 & LOW_MASK) + (p10 & LOW_MASK);
+        return p11 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+    }
+    
+    /**
+     * Adds the first xlen limbs of x and the first ylen limbs of y
+     * @param x limbs of addend x
+     * @param xlen number of limbs in x
+     * @param y limbs of addend y
+     * @param ylen number of limbs in y
+     * @return array of max(xlen, ylen) + 1 limbs containing (x + y)
+     */
+    static long[] add(long[] x, int xlen, long[] y, int ylen) {
+        if(xlen < ylen) {
+            return add(y, ylen, x, xlen);
+        }
+        long[] r = new long[xlen + 1];
+        r[xlen] = add(x, xlen, y, ylen, r);
+        return r;
+    }
+    
+    /**
+     * Adds the first xlen limbs of x and the first ylen limbs of y into r, where xlen >= ylen.
+     * r may be the same array as x or y.
+     * @param r array of at least xlen limbs receiving the low xlen limbs of the sum
+     * @return carry out of the most significant limb (0 or 1)
+     */
+    static long add(long[] x, int xlen, long[] y, int ylen, long[] r) {
+        long carry = 0;
+        int i = 0;
+        for(; i < ylen; i++) {
+            long xi = x[i];
+            long yi = y[i];
+            long s = xi + yi + carry;
+            carry = ((xi & yi) | ((xi | yi) & ~s)) >>> 63;
+            r[i] = s;
+        }
+        for(; i < xlen; i++) {
+            long xi = x[i];
+            long s = xi + carry;
+            carry = (xi & ~s) >>> 63;
+            r[i] = s;
+        }
+        return carry;
+    }
+    
+    /**
+     * Subtracts the first ylen limbs of y from the first xlen limbs of x into r, where xlen >= ylen.
+     * r may be the same array as x or y.
+     * @param r array of at least xlen limbs receiving the low xlen limbs of the difference
+     * @return borrow out of the most significant limb (0 or 1), 1 meaning x < y
+     */
+    static long subtract(long[] x, int xlen, long[] y, int ylen, long[] r) {
+        long borrow = 0;
+        int i = 0;
+        for(; i < ylen; i++) {
+            long xi = x[i];
+            long yi = y[i];
+            long d = xi - yi - borrow;
+            borrow = ((~xi & yi) | ((~xi | yi) & d)) >>> 63;
+            r[i] = d;
+        }
+        for(; i < xlen; i++) {
+            long xi = x[i];
+            long d = xi - borrow;
+            borrow = (~xi & d) >>> 63;
+            r[i] = d;
+        }
+        return borrow;
+    }
+    
+    /**
+     * Multiplies the first xlen limbs of x with the first ylen limbs of y, choosing the
+     * algorithm by operand size
+     * @param x limbs of multiplicand x
+     * @param xlen number of limbs in x
+     * @param y limbs of multiplier y
+     * @param ylen number of limbs in y
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiply(long[] x, int xlen, long[] y, int ylen) {
+        return multiply(x, 0, xlen, y, 0, ylen);
+    }
+    
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff, choosing the algorithm by the length of the shorter operand: schoolbook,
+     * Karatsuba, Toom-Cook 3-way or a number-theoretic transform
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiply(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen) {
+        return multiply(x, xoff, xlen, y, yoff, ylen, 0);
+    }
+    
+    /**
+     * Multiplies the first xlen limbs of x with the first ylen limbs of y into r, choosing
+     * the algorithm by operand size. Products computed with the schoolbook method need no
+     * allocation.
+     * @param r array of at least xlen + ylen limbs receiving the product, must not be the
+     * same array as x or y
+     */
+    static void multiply(long[] x, int xlen, long[] y, int ylen, long[] r) {
+        for(int i = 0; i < xlen + ylen; i++) {
+            r[i] = 0;
+        }
+        if(!isSchoolbook(x, 0, xlen, y, 0, ylen)) {
+            long[] product = multiply(x, 0, xlen, y, 0, ylen, 0);
+            System.arraycopy(product, 0, r, 0, xlen + ylen);
+        } else if(isSquare(x, 0, xlen, y, 0, ylen)) {
+            squareSchoolbook(x, 0, xlen, r);
+        } else {
+            multiplySchoolbook(x, 0, xlen, y, 0, ylen, r);
+        }
+    }
+    
+    /**
+     * Squares the first xlen limbs of x
+     * @return array of 2 * xlen limbs containing (x * x)
+     */
+    static long[] square(long[] x, int xlen) {
+        return multiply(x, 0, xlen, x, 0, xlen, 0);
+    }
+    
+    /**
+     * Returns true, if both operands are the same limbs of the same array, in which case
+     * the product is computed as a square
+     */
+    static boolean isSquare(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen) {
+        return x == y && xoff == yoff && xlen == ylen;
+    }
+    
+    /**
+     * Returns true, if the product is small enough for the schoolbook method, squares
+     * having a threshold of their own
+     */
+    private static boolean isSchoolbook(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen) {
+        int threshold = isSquare(x, xoff, xlen, y, yoff, ylen) ? UnsignedBigInt.KARATSUBA_SQUARE_THRESHOLD : UnsignedBigInt.KARATSUBA_THRESHOLD;
+        return Math.min(xlen, ylen) < Math.max(threshold, MIN_KARATSUBA_LENGTH);
+    }
+    
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff. Identical operands are squared. While depth is positive and the shorter operand has at least
+     * PARALLEL_THRESHOLD limbs, the operands are split with Toom-Cook or Karatsuba and the
+     * sub-products computed in parallel with depth - 1.
+     * @param depth number of recursion levels that may still run sub-products in parallel
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiply(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen, int depth) {
+        int min = Math.min(xlen, ylen);
+        if(isSchoolbook(x, xoff, xlen, y, yoff, ylen)) {
+            long[] r = new long[xlen + ylen];
+            if(isSquare(x, xoff, xlen, y, yoff, ylen)) {
+                squareSchoolbook(x, xoff, xlen, r);
+            } else {
+                multiplySchoolbook(x, xoff, xlen, y, yoff, ylen, r);
+            }
+            return r;
+        }
+        if(depth > 0 && min >= UnsignedBigInt.PARALLEL_THRESHOLD) {
+            if(min >= MIN_TOOM_COOK_LENGTH && ToomCook3.fits(xlen, ylen)) {
+                return ToomCook3.multiply(x, xoff, xlen, y, yoff, ylen, depth);
+            }
+            return multiplyKaratsuba(x, xoff, xlen, y, yoff, ylen, depth);
+        }
+        if(min >= UnsignedBigInt.NTT_THRESHOLD && NumberTheoreticTransform.fits(xlen, ylen)) {
+            return NumberTheoreticTransform.multiply(x, xoff, xlen, y, yoff, ylen);
+        }
+        if(min >= Math.max(UnsignedBigInt.TOOM_COOK_THRESHOLD, MIN_TOOM_COOK_LENGTH) && ToomCook3.fits(xlen, ylen)) {
+            return ToomCook3.multiply(x, xoff, xlen, y, yoff, ylen, 0);
+        }
+        return multiplyKaratsuba(x, xoff, xlen, y, yoff, ylen, 0);
+    }
+    
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff using one level of Karatsuba multiplication, the sub-products being
+     * computed with multiply. Unbalanced operands are cut into pieces the size of the
+     * shorter operand first.
+     * @param depth number of recursion levels that may still run sub-products in parallel
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiplyKaratsuba(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen, int depth) {
+        if(xlen < ylen) {
+            return multiplyKaratsuba(y, yoff, ylen, x, xoff, xlen, depth);
+        }
+        long[] r = new long[xlen + ylen];
+        if(ylen < 2) {
+            multiplySchoolbook(x, xoff, xlen, y, yoff, ylen, r);
+            return r;
+        }
+        
+        int h = (xlen + 1) / 2;
+        if(ylen <= h) {
+            // unbalanced: x is at least twice as long as y, multiply y by slices of x
+            int slices = (xlen + ylen - 1) / ylen;
+            ParallelMultiplication.Product[] products = new ParallelMultiplication.Product[slices];
+            for(int i = 0; i < slices; i++) {
+                int len = Math.min(ylen, xlen - i * ylen);
+                products[i] = new ParallelMultiplication.Product(x, xoff + i * ylen, len, y, yoff, ylen);
+            }
+            long[][] p = ParallelMultiplication.multiplyAll(products, depth);
+            for(int i = 0; i < slices; i++) {
+                addAt(r, i * ylen, p[i], p[i].length);
+            }
+            return r;
+        }
+        
+        // x = x1 * B^h + x0 and y = y1 * B^h + y0, where B = 2^64
+        int x1len = xlen - h;
+        int y1len = ylen - h;
+        long[] sx = new long[h + 1];
+        System.arraycopy(x, xoff, sx, 0, h);
+        addAt(sx, 0, x, xoff + h, x1len);
+        long[] sy = sx;
+        if(!isSquare(x, xoff, xlen, y, yoff, ylen)) {
+            sy = new long[h + 1];
+            System.arraycopy(y, yoff, sy, 0, h);
+            addAt(sy, 0, y, yoff + h, y1len);
+        }
+        
+        long[][] p = ParallelMultiplication.multiplyAll(new ParallelMultiplication.Product[] {
+            new ParallelMultiplication.Product(x, xoff, h, y, yoff, h),
+            new ParallelMultiplication.Product(x, xoff + h, x1len, y, yoff + h, y1len),
+            new ParallelMultiplication.Product(sx, 0, h + 1, sy, 0, h + 1)
+        }, depth);
+        long[] z0 = p[0];
+        long[] z2 = p[1];
+        
+        // z1 = (x0 + x1)(y0 + y1) - z0 - z2 = x1 * y0 + x0 * y1
+        long[] z1 = p[2];
+        subtract(z1, z1.length, z0, z0.length, z1);
+        subtract(z1, z1.length, z2, z2.length, z1);
+        
+        System.arraycopy(z0, 0, r, 0, z0.length);
+        System.arraycopy(z2, 0, r, 2 * h, z2.length);
+        addAt(r, h, z1, z1.length);
+        return r;
+    }
+    
+    /**
+     * Adds the first plen limbs of p into r starting at limb offset, propagating the
+     * carry up to the end of r
+     * @return carry out of the most significant limb of r (0 or 1)
+     */
+    static long addAt(long[] r, int offset, long[] p, int plen) {
+        return addAt(r, offset, p, 0, plen);
+    }
+    
+    /**
+     * Adds the plen limbs of p starting at poff into r starting at limb offset,
+     * propagating the carry up to the end of r
+     * @return carry out of the most significant limb of r (0 or 1)
+     */
+    static long addAt(long[] r, int offset, long[] p, int poff, int plen) {
+        long carry = 0;
+        int i = 0;
+        for(; i < plen && offset + i < r.length; i++) {
+            long ri = r[offset + i];
+            long pi = p[poff + i];
+            long s = ri + pi + carry;
+            carry = ((ri & pi) | ((ri | pi) & ~s)) >>> 63;
+            r[offset + i] = s;
+        }
+        for(int k = offset + i; carry != 0 && k < r.length; k++) {
+            r[k]++;
+            carry = r[k] == 0 ? 1 : 0;
+        }
+        return carry;
+    }
+    
+    /**
+     * Squares the xlen limbs of x starting at xoff using the schoolbook method. Every cross
+     * product x[i] * x[j], i < j, is computed once and doubled. The first 2 * xlen limbs of r
+     * must be zero and r must not be the same array as x.
+     * @param r array of at least 2 * xlen limbs receiving the square
+     */
+    static void squareSchoolbook(long[] x, int xoff, int xlen, long[] r) {
+        for(int i = 0; i < xlen; i++) {
+            long xi = x[xoff + i];
+            if(xi == 0) {
+                continue;
+            }
+            long carry = 0;
+            for(int j = i + 1; j < xlen; j++) {
+                long xj = x[xoff + j];
+                long low = xi * xj;
+                long high = multiplyHigh(xi, xj);
+                
+                long t = r[i + j];
+                low += t;
+                if(unsignedLess(low, t)) {
+                    high++;
+                }
+                low += carry;
+                if(unsignedLess(low, carry)) {
+                    high++;
+                }
+                r[i + j] = low;
+                carry = high;
+            }
+            r[i + xlen] = carry;
+        }
+        
+        shiftLeft(r, 2 * xlen, 1, r);
+        
+        long carry = 0;
+        for(int i = 0; i < xlen; i++) {
+            long xi = x[xoff + i];
+            long low = xi * xi;
+            long high = multiplyHigh(xi, xi);
+            
+            long t = r[2 * i];
+            long s = t + low + carry;
+            carry = ((t & low) | ((t | low) & ~s)) >>> 63;
+            r[2 * i] = s;
+            
+            t = r[2 * i + 1];
+            s = t + high + carry;
+            carry = ((t & high) | ((t | high) & ~s)) >>> 63;
+            r[2 * i + 1] = s;
+        }
+    }
+    
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff using the schoolbook method. The first xlen + ylen limbs of r must be zero
+     * and r must not be the same array as x or y.
+     * @param r array of at least xlen + ylen limbs receiving the product
+     */
+    static void multiplySchoolbook(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen, long[] r) {
+        for(int i = 0; i < xlen; i++) {
+            long xi = x[xoff + i];
+            if(xi == 0) {
+                continue;
+            }
+            long carry = 0;
+            for(int j = 0; j < ylen; j++) {
+                long yj = y[yoff + j];
+                long low = xi * yj;
+                long high = multiplyHigh(xi, yj);
+                
+                long t = r[i + j];
+                low += t;
+                if(unsignedLess(low, t)) {
+                    high++;
+                }
+                low += carry;
+                if(unsignedLess(low, carry)) {
+                    high++;
+                }
+                r[i + j] = low;
+                carry = high;
+            }
+            r[i + ylen] = carry;
+        }
+    }
+    
+    /**
+     * Multiplies the first xlen limbs of x by the single limb y and adds the limb carry
+     * into r. r may be the same array as x.
+     * @param r array of at least xlen limbs receiving the low xlen limbs of (x * y + carry)
+     * @return the limb carried out of the most significant limb
+     */
+    static long multiplyByWord(long[] x, int xlen, long y, long carry, long[] r) {
+        for(int i = 0; i < xlen; i++) {
+            long xi = x[i];
+            long low = xi * y;
+            long high = multiplyHigh(xi, y);
+            low += carry;
+            if(unsignedLess(low, carry)) {
+                high++;
+            }
+            r[i] = low;
+            carry = high;
+        }
+        return carry;
+    }
+    
+    /**
+     * Divides the unsigned 64-bit value n by the unsigned 64-bit value d
+     * @return unsigned quotient floor(n / d)
+     */
+    static long divideUnsigned(long n, long d) {
+        if(d < 0) {
+            return unsignedLess(n, d) ? 0 : 1;
+        }
+        if(n >= 0) {
+            return n / d;
+        }
+        long q = ((n >>> 1) / d) << 1;
+        long r = n - q * d;
+        return unsignedLess(r, d) ? q : q + 1;
+    }
+    
+    /**
+     * Divides the unsigned 128-bit value (high, low) by the unsigned 64-bit value d.
+     * The quotient must fit in 64 bits, i.e. high must be smaller than d (unsigned).
+     * The remainder is low - quotient * d with wrap-around.
+     * @return unsigned quotient floor((high * 2^64 + low) / d)
+     */
+    static long divideUnsigned128(long high, long low, long d) {
+        if(high == 0) {
+            return divideUnsigned(low, d);
+        }
+        
+        // Hacker's Delight divlu: two steps of 64-by-32 bit division on the normalized divisor
+        int s = Long.numberOfLeadingZeros(d);
+        d <<= s;
+        long d1 = d >>> 32;
+        long d0 = d & LOW_MASK;
+        long n32 = s == 0 ? high : (high << s) | (low >>> (64 - s));
+        long n10 = low << s;
+        long n1 = n10 >>> 32;
+        long n0 = n10 & LOW_MASK;
+        
+        long q1 = divideUnsigned(n32, d1);
+        long rhat = n32 - q1 * d1;
+        while(q1 > LOW_MASK || unsignedLess((rhat << 32) | n1, q1 * d0)) {
+            q1--;
+            rhat += d1;
+            if(rhat > LOW_MASK) {
+                break;
+            }
+        }
+        
+        long n21 = (n32 << 32) + n1 - q1 * d;
+        long q0 = divideUnsigned(n21, d1);
+        rhat = n21 - q0 * d1;
+        while(q0 > LOW_MASK || unsignedLess((rhat << 32) | n0, q0 * d0)) {
+            q0--;
+            rhat += d1;
+            if(rhat > LOW_MASK) {
+                break;
+            }
+        }
+        
+        return (q1 << 32) | q0;
+    }
+    
+    /**
+     * Returns the reciprocal floor((2^128 - 1) / d) - 2^64 of the normalized limb d, whose
+     * most significant bit must be set
+     */
+    static long reciprocal(long d) {
+        return divideUnsigned128(~d, -1L, d);
+    }
+    
+    /**
+     * Divides the first xlen limbs of x by the single limb d. From two limbs on, each
+     * quotient limb is computed with a precomputed reciprocal of the normalized divisor
+     * instead of a hardware division (Moller and Granlund, Improved division by invariant
+     * integers, 2011).
+     * @param q array of at least xlen limbs receiving the quotient, may be the same array as x,
+     * or null if only the remainder is needed
+     * @return the remainder (x mod d)
+     */
+    static long divideByWord(long[] x, int xlen, long d, long[] q) {
+        if(xlen < 2) {
+            long x0 = xlen > 0 ? x[0] : 0;
+            long q0 = divideUnsigned(x0, d);
+            if(q != null && xlen > 0) {
+                q[0] = q0;
+            }
+            return x0 - q0 * d;
+        }
+        
+        int s = Long.numberOfLeadingZeros(d);
+        long dn = d << s;
+        long v = reciprocal(dn);
+        long r = s == 0 ? 0 : x[xlen - 1] >>> (64 - s);
+        for(int i = xlen - 1; i >= 0; i--) {
+            long u0 = x[i] << s;
+            if(s != 0 && i > 0) {
+                u0 |= x[i - 1] >>> (64 - s);
+            }
+            
+            // (q1, q0) = v * r + (r + 1, u0)
+            long q0 = v * r;
+            long q1 = multiplyHigh(v, r) + r + 1;
+            q0 += u0;
+            if(unsignedLess(q0, u0)) {
+                q1++;
+            }
+            long rem = u0 - q1 * dn;
+            if(unsignedLess(q0, rem)) {
+                q1--;
+                rem += dn;
+            }
+            if(!unsignedLess(rem, dn)) {
+                q1++;
+                rem -= dn;
+            }
+            if(q != null) {
+                q[i] = q1;
+            }
+            r = rem;
+        }
+        return r >>> s;
+    }
+    
+    /**
+     * Adds the single limb y to the first xlen limbs of x into r. r may be the same array as x.
+     * @param r array of at least xlen limbs receiving the low xlen limbs of the sum
+     * @return carry out of the most significant limb (0 or 1)
+     */
+    static long addWord(long[] x, int xlen, long y, long[] r) {
+        long carry = y;
+        for(int i = 0; i < xlen; i++) {
+            long s = x[i] + carry;
+            carry = unsignedLess(s, carry) ? 1 : 0;
+            r[i] = s;
+        }
+        return carry;
+    }
+    
+    /**
+     * Divides the first ulen limbs of u by the first vlen limbs of v using Knuth's
+     * Algorithm D (TAOCP vol. 2, 4.3.1) with 64-bit digits. The most significant limb of
+     * v must be non-zero.
+     * @return array containing the quotient limbs (index 0) and the remainder limbs (index 1)
+     */
+    static long[][] divideAndRemainder(long[] u, int ulen, long[] v, int vlen) {
+        if(ulen < vlen) {
+            long[] r = new long[ulen];
+            System.arraycopy(u, 0, r, 0, ulen);
+            return new long[][] {new long[0], r};
+        }
+        if(vlen == 1) {
+            long[] q = new long[ulen];
+            long r = divideByWord(u, ulen, v[0], q);
+            return new long[][] {q, new long[] {r}};
+        }
+        
+        // normalize so that the top limb of the divisor has its highest bit set
+        int s = Long.numberOfLeadingZeros(v[vlen - 1]);
+        long[] vn = new long[vlen];
+        shiftLeft(v, vlen, s, vn);
+        long[] un = new long[ulen + 1];
+        un[ulen] = shiftLeft(u, ulen, s, un);
+        
+        long[] q = new long[ulen - vlen + 1];
+        long vTop = vn[vlen - 1];
+        long vNext = vn[vlen - 2];
+        
+        for(int j = ulen - vlen; j >= 0; j--) {
+            long u2 = un[j + vlen];
+            long u1 = un[j + vlen - 1];
+            long u0 = un[j + vlen - 2];
+            
+            long qhat;
+            long rhat;
+            boolean rhatOverflow;
+            if(u2 == vTop) {
+                qhat = -1L;
+                rhat = u1 + vTop;
+                rhatOverflow = unsignedLess(rhat, vTop);
+            } else {
+                qhat = divideUnsigned128(u2, u1, vTop);
+                rhat = u1 - qhat * vTop;
+                rhatOverflow = false;
+            }
+            
+            // qhat is at most two too big; the second limb of the divisor decides
+            while(!rhatOverflow) {
+                long high = multiplyHigh(qhat, vNext);
+                long low = qhat * vNext;
+                if(unsignedLess(rhat, high) || (rhat == high && unsignedLess(u0, low))) {
+                    qhat--;
+                    long previous = rhat;
+                    rhat += vTop;
+                    rhatOverflow = unsignedLess(rhat, previous);
+                } else {
+                    break;
+                }
+            }
+            
+            if(multiplySubtract(un, j, vn, vlen, qhat) != 0) {
+                // qhat was still one too big, add the divisor back
+                qhat--;
+                long carry = 0;
+                for(int i = 0; i < vlen; i++) {
+                    long ui = un[j + i];
+                    long vi = vn[i];
+                    long sum = ui + vi + carry;
+                    carry = ((ui & vi) | ((ui | vi) & ~sum)) >>> 63;
+                    un[j + i] = sum;
+                }
+                un[j + vlen] += carry;
+            }
+            q[j] = qhat;
+        }
+        
+        long[] r = new long[vlen];
+        shiftRight(un, vlen, s, r);
+        return new long[][] {q, r};
+    }
+    
+    /**
+     * Subtracts q times the first vlen limbs of v from u starting at the given limb offset
+     * @return 1, if the subtraction borrowed past limb offset + vlen, 0 otherwise
+     */
+    private static long multiplySubtract(long[] u, int offset, long[] v, int vlen, long q) {
+        long carry = 0;
+        for(int i = 0; i < vlen; i++) {
+            long vi = v[i];
+            long low = q * vi;
+            long high = multiplyHigh(q, vi);
+            low += carry;
+            if(unsignedLess(low, carry)) {
+                high++;
+            }
+            long t = u[offset + i];
+            if(unsignedLess(t, low)) {
+                high++;
+            }
+            u[offset + i] = t - low;
+            carry = high;
+        }
+        long t = u[offset + vlen];
+        u[offset + vlen] = t - carry;
+        return unsignedLess(t, carry) ? 1 : 0;
+    }
+    
+    /**
+     * Shifts the first len limbs of x left by s bits (0 <= s < 64) into r
+     * @return the bits shifted out of the most significant limb
+     */
+    static long shiftLeft(long[] x, int len, int s, long[] r) {
+        return shiftLeft(x, len, s, r, 0);
+    }
+    
+    /**
+     * Shifts the first len limbs of x left by s bits (0 <= s < 64) into r starting at roff.
+     * r may be the same array as x, limbs are written from the top down.
+     * @return the bits shifted out of the most significant limb
+     */
+    static long shiftLeft(long[] x, int len, int s, long[] r, int roff) {
+        if(s == 0) {
+            System.arraycopy(x, 0, r, roff, len);
+            return 0;
+        }
+        long carry = len > 0 ? x[len - 1] >>> (64 - s) : 0;
+        for(int i = len - 1; i > 0; i--) {
+            r[roff + i] = (x[i] << s) | (x[i - 1] >>> (64 - s));
+        }
+        if(len > 0) {
+            r[roff] = x[0] << s;
+        }
+        return carry;
+    }
+    
+    /**
+     * Shifts the first len limbs of x right by s bits (0 <= s < 64) into r
+     */
+    static void shiftRight(long[] x, int len, int s, long[] r) {
+        shiftRight(x, 0, len, s, r);
+    }
+    
+    /**
+     * Shifts the len limbs of x starting at xoff right by s bits (0 <= s < 64) into the
+     * first len limbs of r. r may be the same array as x.
+     */
+    static void shiftRight(long[] x, int xoff, int len, int s, long[] r) {
+        if(s == 0) {
+            System.arraycopy(x, xoff, r, 0, len);
+            return;
+        }
+        for(int i = 0; i < len; i++) {
+            long next = i + 1 < len ? x[xoff + i + 1] : 0;
+            r[i] = (x[xoff + i] >>> s) | (next << (64 - s));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package bignum;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Optional instrumentation of the UnsignedBigInt operations. While enabled, every operation
+ * records a call, the bit length of its larger operand into a histogram of powers of two,
+ * the nanoseconds spent and the bytes of limbs in its result, not counting temporary
+ * arrays, and passes the same figures to the registered MetricsListeners. The single-limb
+ * fast paths and the operations with long operands are not recorded, and operations built
+ * on others, such as pow, record the operations they call as well. Direct calls of
+ * karatsuba and parallelMultiply are recorded apart from multiply.
+ * While disabled, the operations only read one flag. The collected figures can be read
+ * through the methods of this class or through JMX after register has been called.
+ */
+public final class Metrics {
+
+    /**
+     * Instrumented operations of UnsignedBigInt
+     */
+    public enum Operation {
+        ADD, SUBTRACT, MULTIPLY, KARATSUBA, PARALLEL_MULTIPLY, SQUARE, DIVIDE, POW, MOD_POW, GCD, MOD_INVERSE, TO_STRING, PARSE
+    }
+
+    /**
+     * Number of buckets in the operand size histograms; bucket i counts operands of
+     * 2^i to 2^(i + 1) - 1 bits
+     */
+    public static final int HISTOGRAM_BUCKETS = 32;
+
+    /**
+     * Name under which register publishes the MetricsMXBean
+     */
+    public static final String OBJECT_NAME = "bignum:type=Metrics";
+
+    static volatile boolean enabled;
+
+    private static final Counters[] COUNTERS = new Counters[Operation.values().length];
+
+    private static final List<MetricsListener> LISTENERS = new CopyOnWriteArrayList<MetricsListener>();
+
+    static {
+        for(int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new Counters();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Counters of a single operation
+     */
+    private static final class Counters {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLongArray sizes = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    }
+
+    /**
+     * Returns true, if operations are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording operations. The counters keep their values while disabled.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Registers a listener to be called after every recorded operation, on the thread
+     * that performed it
+     */
+    public static void addListener(MetricsListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with addListener. Removing a listener that is not
+     * registered does nothing.
+     */
+    public static void removeListener(MetricsListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Returns the number of recorded calls of the operation
+     */
+    public static long getCalls(Operation op) {
+        return COUNTERS[op.ordinal()].calls.get();
+    }
+
+    /**
+     * Returns the total number of nanoseconds spent in recorded calls of the operation
+     */
+    public static long getNanos(Operation op) {
+        return COUNTERS[op.ordinal()].nanos.get();
+    }
+
+    /**
+     * Returns the total number of bytes of limbs in the results of recorded calls of the
+     * operation. Temporary arrays allocated during the calls are not counted.
+     */
+    public static long getResultBytes(Operation op) {
+        return COUNTERS[op.ordinal()].bytes.get();
+    }
+
+    /**
+     * Returns the operand size histogram of the operation
+     * @return array of HISTOGRAM_BUCKETS counts, element i counting the calls whose larger
+     * operand has 2^i to 2^(i + 1) - 1 bits
+     */
+    public static long[] getSizeHistogram(Operation op) {
+        AtomicLongArray sizes = COUNTERS[op.ordinal()].sizes;
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for(int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = sizes.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Sets every counter to zero
+     */
+    public static void reset() {
+        for(Counters c : COUNTERS) {
+            c.calls.set(0);
+            c.nanos.set(0);
+            c.bytes.set(0);
+            for(int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                c.sizes.set(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Publishes the counters as a MetricsMXBean named OBJECT_NAME in the platform MBean
+     * server. Does nothing if it is already registered.
+     * @throws IllegalStateException if the MBean server refuses the registration
+     */
+    public static synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch(JMException e) {
+            throw new IllegalStateException("Registering " + OBJECT_NAME + " failed", e);
+        }
+    }
+
+    /**
+     * Removes the MetricsMXBean from the platform MBean server, if registered
+     */
+    public static synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch(JMException e) {
+            throw new IllegalStateException("Unregistering " + OBJECT_NAME + " failed", e);
+        }
+    }
+
+    /**
+     * Records a call of the operation started at System.nanoTime() start
+     * @param bits bit length of the larger operand
+     * @param limbs number of limbs in the result
+     */
+    static void record(Operation op, int bits, long start, int limbs) {
+        long nanos = System.nanoTime() - start;
+        long bytes = 8L * limbs;
+        Counters c = COUNTERS[op.ordinal()];
+        c.calls.incrementAndGet();
+        c.nanos.addAndGet(nanos);
+        c.bytes.addAndGet(bytes);
+        c.sizes.incrementAndGet(31 - Integer.numberOfLeadingZeros(Math.max(bits, 1)));
+        for(MetricsListener listener : LISTENERS) {
+            listener.operationCompleted(op, bits, nanos, bytes);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package bignum;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MetricsMXBean reading the counters of Metrics
+ */
+final class MetricsBean implements MetricsMXBean {
+
+    @Override
+    public boolean isEnabled() {
+        return Metrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        Metrics.setEnabled(enabled);
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        Map<String, Long> calls = new LinkedHashMap<String, Long>();
+        for(Metrics.Operation op : Metrics.Operation.values()) {
+            calls.put(op.name(), Metrics.getCalls(op));
+        }
+        return calls;
+    }
+
+    @Override
+    public Map<String, Long> getNanos() {
+        Map<String, Long> nanos = new LinkedHashMap<String, Long>();
+        for(Metrics.Operation op : Metrics.Operation.values()) {
+            nanos.put(op.name(), Metrics.getNanos(op));
+        }
+        return nanos;
+    }
+
+    @Override
+    public Map<String, Long> getResultBytes() {
+        Map<String, Long> bytes = new LinkedHashMap<String, Long>();
+        for(Metrics.Operation op : Metrics.Operation.values()) {
+            bytes.put(op.name(), Metrics.getResultBytes(op));
+        }
+        return bytes;
+    }
+
+    @Override
+    public Map<String, long[]> getSizeHistograms() {
+        Map<String, long[]> histograms = new LinkedHashMap<String, long[]>();
+        for(Metrics.Operation op : Metrics.Operation.values()) {
+            histograms.put(op.name(), Metrics.getSizeHistogram(op));
+        }
+        return histograms;
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
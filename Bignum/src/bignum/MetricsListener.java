@@ -0,0 +1,17 @@
+package bignum;
+
+/**
+ * Receives the operations recorded by Metrics while it is enabled. Listeners are called on
+ * the thread performing the operation, so they should return quickly.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called after an operation has completed
+     * @param op the operation
+     * @param bits bit length of the larger operand
+     * @param nanos nanoseconds spent in the operation
+     * @param bytes bytes of limbs in the result
+     */
+    void operationCompleted(Metrics.Operation op, int bits, long nanos, long bytes);
+}
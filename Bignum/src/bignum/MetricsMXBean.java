@@ -0,0 +1,24 @@
+package bignum;
+
+import java.util.Map;
+
+/**
+ * JMX view of Metrics, registered by Metrics.register. The maps are keyed by the names of
+ * the Metrics.Operation constants.
+ */
+public interface MetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    Map<String, Long> getCalls();
+
+    Map<String, Long> getNanos();
+
+    Map<String, Long> getResultBytes();
+
+    Map<String, long[]> getSizeHistograms();
+
+    void reset();
+}
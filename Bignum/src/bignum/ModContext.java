@@ -0,0 +1,456 @@
+package bignum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The ModContext class for repeated modular arithmetic with a fixed modulus m.
+ * Everything derived from the modulus (the Barrett reciprocal and, for odd moduli, the
+ * Montgomery constants) is computed once when the context is created.
+ *
+ */
+public class ModContext {
+
+    /**
+     * Upper limits for exponent bit lengths, the index + 1 of the first limit not exceeded
+     * being the sliding window size used for the exponent
+     */
+    private static final int[] WINDOW_THRESHOLDS = {7, 25, 81, 241, 673, 1793, Integer.MAX_VALUE};
+
+    /**
+     * Exponent bit length from which on multiModPow processes two bits of each exponent
+     * per step
+     */
+    private static final int MULTI_WINDOW_THRESHOLD = 64;
+
+    private final UnsignedBigInt modulus;
+
+    /**
+     * Limbs of the modulus
+     */
+    private final long[] m;
+
+    /**
+     * Number of limbs in the modulus
+     */
+    private final int n;
+
+    /**
+     * Barrett reciprocal floor(2^(128n) / m)
+     */
+    private final long[] mu;
+
+    /**
+     * Montgomery context used for exponentiation, null if the modulus is even
+     */
+    private final Montgomery montgomery;
+
+    /**
+     * Creates a new ModContext for the modulus m
+     * @param m UnsignedBigInt containing modulus m
+     * @throws ArithmeticException if m is zero
+     */
+    public ModContext(UnsignedBigInt m) {
+        int mlen = m.bits().wordLength();
+        if(mlen == 0) {
+            throw new ArithmeticException("Modulus is zero");
+        }
+
+        this.n = mlen;
+        this.m = new long[mlen];
+        System.arraycopy(m.bits().words(), 0, this.m, 0, mlen);
+        this.modulus = UnsignedBigInt.valueOf(new BitArray(this.m));
+
+        long[] b2k = new long[2 * n + 1];
+        b2k[2 * n] = 1;
+        this.mu = LimbMath.divideAndRemainder(b2k, 2 * n + 1, this.m, n)[0];
+
+        this.montgomery = (this.m[0] & 1) != 0 ? new Montgomery(this.m, n) : null;
+    }
+
+    /**
+     * Returns the modulus of this ModContext
+     * @return UnsignedBigInt containing modulus m
+     */
+    public UnsignedBigInt getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Reduces the UnsignedBigInt x modulo the modulus of this ModContext
+     * @param x UnsignedBigInt to be reduced
+     * @return UnsignedBigInt whose value is (x mod m)
+     */
+    public UnsignedBigInt reduce(UnsignedBigInt x) {
+        return UnsignedBigInt.valueOf(new BitArray(reduce(x.bits().words(), x.bits().wordLength())));
+    }
+
+    /**
+     * Multiplies the UnsignedBigInts a and b modulo the modulus of this ModContext
+     * @param a UnsignedBigInt containing multiplicand a
+     * @param b UnsignedBigInt containing multiplier b
+     * @return UnsignedBigInt whose value is (a * b mod m)
+     */
+    public UnsignedBigInt mulMod(UnsignedBigInt a, UnsignedBigInt b) {
+        long[] x = reduce(a.bits().words(), a.bits().wordLength());
+        long[] y = reduce(b.bits().words(), b.bits().wordLength());
+        long[] product = LimbMath.multiply(x, n, y, n);
+        return UnsignedBigInt.valueOf(new BitArray(reduce(product, product.length)));
+    }
+
+    /**
+     * Squares the UnsignedBigInt a modulo the modulus of this ModContext
+     * @param a UnsignedBigInt to be squared
+     * @return UnsignedBigInt whose value is (a^2 mod m)
+     */
+    public UnsignedBigInt sqrMod(UnsignedBigInt a) {
+        long[] x = reduce(a.bits().words(), a.bits().wordLength());
+        long[] square = LimbMath.square(x, n);
+        return UnsignedBigInt.valueOf(new BitArray(reduce(square, square.length)));
+    }
+
+    /**
+     * Raises the UnsignedBigInt b to the power e modulo the modulus of this ModContext
+     * using left-to-right sliding window exponentiation. Odd moduli use Montgomery
+     * multiplication, even moduli Barrett reduction.
+     * @param b UnsignedBigInt containing base b
+     * @param e UnsignedBigInt containing exponent e
+     * @return UnsignedBigInt whose value is (b^e mod m)
+     */
+    public UnsignedBigInt modPow(UnsignedBigInt b, UnsignedBigInt e) {
+        long[] result = new long[n];
+        modPow(b.bits().words(), b.bits().wordLength(), e.bits().words(), e.bits().length(), result, new Workspace());
+        return UnsignedBigInt.valueOf(new BitArray(result));
+    }
+
+    /**
+     * Raises every base to the exponent at the same position modulo the modulus of this
+     * ModContext. The exponentiations are spread over all processors, each thread reusing
+     * one workspace for its share.
+     * @param bases list of UnsignedBigInts containing the bases
+     * @param exponents list of UnsignedBigInts containing the exponents
+     * @return list of UnsignedBigInts whose values are (bases[i]^exponents[i] mod m)
+     * @throws IllegalArgumentException if the lists differ in size
+     */
+    public List<UnsignedBigInt> modPowAll(final List<UnsignedBigInt> bases, final List<UnsignedBigInt> exponents) {
+        if(bases.size() != exponents.size()) {
+            throw new IllegalArgumentException("Number of bases and exponents differ");
+        }
+        int count = bases.size();
+        int chunks = Math.min(count, 4 * Workers.parallelism());
+        List<Callable<UnsignedBigInt[]>> tasks = new ArrayList<Callable<UnsignedBigInt[]>>(chunks);
+        for(int c = 0; c < chunks; c++) {
+            final int from = (int)((long)count * c / chunks);
+            final int to = (int)((long)count * (c + 1) / chunks);
+            tasks.add(new Callable<UnsignedBigInt[]>() {
+                @Override
+                public UnsignedBigInt[] call() {
+                    Workspace w = new Workspace();
+                    UnsignedBigInt[] results = new UnsignedBigInt[to - from];
+                    for(int i = from; i < to; i++) {
+                        BitArray b = bases.get(i).bits();
+                        BitArray e = exponents.get(i).bits();
+                        long[] result = new long[n];
+                        modPow(b.words(), b.wordLength(), e.words(), e.length(), result, w);
+                        results[i - from] = UnsignedBigInt.valueOf(new BitArray(result));
+                    }
+                    return results;
+                }
+            });
+        }
+
+        List<UnsignedBigInt> results = new ArrayList<UnsignedBigInt>(count);
+        for(UnsignedBigInt[] chunk : Workers.invokeAll(tasks)) {
+            for(UnsignedBigInt r : chunk) {
+                results.add(r);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Computes the product (a^x * b^y) modulo the modulus of this ModContext with
+     * simultaneous exponentiation (Shamir's trick, HAC 14.88): both exponents share a
+     * single chain of squarings, multiplying by precomputed products a^i * b^j.
+     * @param a UnsignedBigInt containing base a
+     * @param x UnsignedBigInt containing exponent x
+     * @param b UnsignedBigInt containing base b
+     * @param y UnsignedBigInt containing exponent y
+     * @return UnsignedBigInt whose value is (a^x * b^y mod m)
+     */
+    public UnsignedBigInt multiModPow(UnsignedBigInt a, UnsignedBigInt x, UnsignedBigInt b, UnsignedBigInt y) {
+        BitArray xbits = x.bits();
+        BitArray ybits = y.bits();
+        long[] xw = xbits.words();
+        long[] yw = ybits.words();
+        int xlen = xbits.length();
+        int ylen = ybits.length();
+        int ebits = Math.max(xlen, ylen);
+        int k = ebits > MULTI_WINDOW_THRESHOLD ? 2 : 1;
+
+        // table[(i << k) | j] = a^i * b^j
+        long[] t = new long[2 * n + 1];
+        long[][] table = new long[1 << (2 * k)][];
+        for(int i = 0; i < table.length; i++) {
+            table[i] = new long[n];
+        }
+        toInternal(new long[] {1}, 1, table[0], t);
+        toInternal(a.bits().words(), a.bits().wordLength(), table[1 << k], t);
+        toInternal(b.bits().words(), b.bits().wordLength(), table[1], t);
+        for(int i = 0; i < (1 << k); i++) {
+            for(int j = 0; j < (1 << k); j++) {
+                int index = (i << k) | j;
+                if(j > 1 || (j == 1 && i > 0)) {
+                    multiply(table[index - 1], table[1], table[index], t);
+                } else if(j == 0 && i > 1) {
+                    multiply(table[(i - 1) << k], table[1 << k], table[index], t);
+                }
+            }
+        }
+
+        long[] result = new long[n];
+        System.arraycopy(table[0], 0, result, 0, n);
+        boolean started = false;
+        for(int i = (ebits + k - 1) / k * k - k; i >= 0; i -= k) {
+            int xi = 0;
+            int yi = 0;
+            for(int j = k - 1; j >= 0; j--) {
+                xi = (xi << 1) | (i + j < xlen && testBit(xw, i + j) ? 1 : 0);
+                yi = (yi << 1) | (i + j < ylen && testBit(yw, i + j) ? 1 : 0);
+            }
+            if(started) {
+                for(int j = 0; j < k; j++) {
+                    square(result, result, t);
+                }
+            }
+            int index = (xi << k) | yi;
+            if(index != 0) {
+                multiply(result, table[index], result, t);
+                started = true;
+            }
+        }
+
+        fromInternal(result, result, t);
+        return UnsignedBigInt.valueOf(new BitArray(result));
+    }
+
+    /**
+     * Returns the number of limbs in the modulus
+     */
+    int length() {
+        return n;
+    }
+
+    /**
+     * Raises the first blen limbs of b to the power e modulo m, using the buffers of the
+     * workspace w for all intermediate values. For odd moduli smaller than
+     * KARATSUBA_SQUARE_THRESHOLD words and bases below m, nothing is allocated once the
+     * workspace has grown to its final size.
+     * @param e limbs of the exponent
+     * @param ebits bit length of the exponent
+     * @param result array of n limbs receiving (b^e mod m), may be the same array as b
+     */
+    void modPow(long[] b, int blen, long[] e, int ebits, long[] result, Workspace w) {
+        if(ebits == 0) {
+            for(int i = 0; i < n; i++) {
+                result[i] = 0;
+            }
+            result[0] = 1;
+            if(LimbMath.compare(result, n, m, n) >= 0) {
+                result[0] = 0;
+            }
+            return;
+        }
+
+        int k = 1;
+        while(ebits > WINDOW_THRESHOLDS[k - 1]) {
+            k++;
+        }
+
+        // table[i] = x^(2i + 1), followed by x^2
+        int size = 1 << (k - 1);
+        long[][] table = w.table(size + 1, n);
+        long[] t = w.scratch(2 * n + 1);
+        toInternal(b, blen, table[0], t);
+        if(size > 1) {
+            long[] x2 = table[size];
+            square(table[0], x2, t);
+            for(int i = 1; i < size; i++) {
+                multiply(table[i - 1], x2, table[i], t);
+            }
+        }
+
+        boolean started = false;
+        int i = ebits - 1;
+        while(i >= 0) {
+            if(!testBit(e, i)) {
+                square(result, result, t);
+                i--;
+                continue;
+            }
+
+            // find the longest window of at most k bits ending in a set bit
+            int l = Math.max(i - k + 1, 0);
+            while(!testBit(e, l)) {
+                l++;
+            }
+            int window = 0;
+            for(int j = i; j >= l; j--) {
+                window = (window << 1) | (testBit(e, j) ? 1 : 0);
+            }
+
+            if(started) {
+                for(int j = i; j >= l; j--) {
+                    square(result, result, t);
+                }
+                multiply(result, table[window >>> 1], result, t);
+            } else {
+                System.arraycopy(table[window >>> 1], 0, result, 0, n);
+                started = true;
+            }
+            i = l - 1;
+        }
+
+        fromInternal(result, result, t);
+    }
+
+    /**
+     * Reduces the first xlen limbs of x and converts them into the internal form used by
+     * modPow
+     * @param r array of n limbs receiving the internal form
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void toInternal(long[] x, int xlen, long[] r, long[] t) {
+        if(montgomery != null) {
+            montgomery.toMontgomery(x, xlen, r, t);
+        } else {
+            System.arraycopy(reduce(x, xlen), 0, r, 0, n);
+        }
+    }
+
+    /**
+     * Converts the value x of n limbs from the internal form used by modPow to a reduced value
+     * @param r array of n limbs receiving the reduced value, may be the same array as x
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void fromInternal(long[] x, long[] r, long[] t) {
+        if(montgomery != null) {
+            montgomery.fromMontgomery(x, r, t);
+        } else if(r != x) {
+            System.arraycopy(x, 0, r, 0, n);
+        }
+    }
+
+    /**
+     * Multiplies two values of n limbs in internal form. r may be the same array as x or y.
+     * @param r array of n limbs receiving the product in internal form
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void multiply(long[] x, long[] y, long[] r, long[] t) {
+        if(montgomery != null) {
+            montgomery.multiply(x, y, r, t);
+        } else {
+            long[] product = LimbMath.multiply(x, n, y, n);
+            long[] reduced = reduce(product, product.length);
+            System.arraycopy(reduced, 0, r, 0, n);
+        }
+    }
+
+    /**
+     * Squares a value of n limbs in internal form. r may be the same array as x.
+     * @param r array of n limbs receiving the square in internal form
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void square(long[] x, long[] r, long[] t) {
+        if(montgomery != null) {
+            montgomery.square(x, r, t);
+        } else {
+            long[] square = LimbMath.square(x, n);
+            long[] reduced = reduce(square, square.length);
+            System.arraycopy(reduced, 0, r, 0, n);
+        }
+    }
+
+    /**
+     * Reduces the first xlen limbs of x modulo m. Values of at most 2n limbs use Barrett
+     * reduction (HAC 14.42), larger values long division.
+     * @return array of n limbs containing (x mod m)
+     */
+    long[] reduce(long[] x, int xlen) {
+        while(xlen > 0 && x[xlen - 1] == 0) {
+            xlen--;
+        }
+
+        long[] r = new long[n + 1];
+        if(xlen < n) {
+            System.arraycopy(x, 0, r, 0, xlen);
+        } else if(xlen > 2 * n) {
+            long[] remainder = LimbMath.divideAndRemainder(x, xlen, m, n)[1];
+            System.arraycopy(remainder, 0, r, 0, remainder.length);
+        } else {
+            // q3 = floor(floor(x / b^(n-1)) * mu / b^(n+1)) is at most two smaller than floor(x / m)
+            int q1len = xlen - (n - 1);
+            long[] q1 = new long[q1len];
+            System.arraycopy(x, n - 1, q1, 0, q1len);
+            long[] q2 = LimbMath.multiply(q1, q1len, mu, mu.length);
+            int q3len = Math.max(q2.length - (n + 1), 0);
+            long[] q3 = new long[q3len];
+            System.arraycopy(q2, n + 1, q3, 0, q3len);
+            long[] p = LimbMath.multiply(q3, q3len, m, n);
+
+            // r = (x - q3 * m) mod b^(n+1)
+            System.arraycopy(x, 0, r, 0, Math.min(xlen, n + 1));
+            LimbMath.subtract(r, n + 1, p, Math.min(p.length, n + 1), r);
+        }
+
+        while(LimbMath.compare(r, n + 1, m, n) >= 0) {
+            LimbMath.subtract(r, n + 1, m, n, r);
+        }
+
+        long[] result = new long[n];
+        System.arraycopy(r, 0, result, 0, n);
+        return result;
+    }
+
+    private static boolean testBit(long[] e, int i) {
+        return (e[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Reusable buffers for modPow, grown on demand. A workspace may be used with different
+     * contexts, but not by several threads at once.
+     */
+    static final class Workspace {
+
+        private long[][] table = new long[0][];
+        private long[] scratch = new long[0];
+
+        /**
+         * Returns an array of at least count buffers of at least len limbs each
+         */
+        long[][] table(int count, int len) {
+            if(table.length < count) {
+                long[][] grown = new long[count][];
+                System.arraycopy(table, 0, grown, 0, table.length);
+                table = grown;
+            }
+            for(int i = 0; i < count; i++) {
+                if(table[i] == null || table[i].length < len) {
+                    table[i] = new long[len];
+                }
+            }
+            return table;
+        }
+
+        /**
+         * Returns a buffer of at least len limbs
+         */
+        long[] scratch(int len) {
+            if(scratch.length < len) {
+                scratch = new long[len];
+            }
+            return scratch;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package bignum;
+
+/**
+ * Montgomery multiplication modulo an odd modulus m of n 64-bit limbs. Values are kept
+ * in Montgomery form (x * R mod m, where R = 2^(64n)) so that each modular product
+ * needs only multiplications and a word-by-word reduction instead of a trial division.
+ */
+final class Montgomery {
+
+    private final long[] modulus;
+    private final int n;
+
+    /**
+     * -m^(-1) mod 2^64
+     */
+    private final long inverse;
+
+    /**
+     * R^2 mod m, used for converting values into Montgomery form
+     */
+    private final long[] rSquared;
+
+    /**
+     * Creates a new Montgomery context for the odd modulus m
+     * @param m limbs of the odd modulus
+     * @param n number of significant limbs in m
+     */
+    Montgomery(long[] m, int n) {
+        this.modulus = new long[n];
+        System.arraycopy(m, 0, this.modulus, 0, n);
+        this.n = n;
+
+        // Newton iteration, every step doubles the number of correct low bits
+        long m0 = m[0];
+        long inv = m0;
+        for(int i = 0; i < 5; i++) {
+            inv *= 2 - m0 * inv;
+        }
+        this.inverse = -inv;
+
+        long[] r2 = new long[2 * n + 1];
+        r2[2 * n] = 1;
+        this.rSquared = LimbMath.divideAndRemainder(r2, 2 * n + 1, modulus, n)[1];
+    }
+
+    /**
+     * Converts the first xlen limbs of x into Montgomery form. Only values of at least m
+     * allocate, as they need a division first.
+     * @param r array of n limbs receiving (x * R mod m), may be the same array as x
+     * @param t scratch array of at least n + 2 limbs
+     */
+    void toMontgomery(long[] x, int xlen, long[] r, long[] t) {
+        if(LimbMath.compare(x, xlen, modulus, n) >= 0) {
+            long[] remainder = LimbMath.divideAndRemainder(x, xlen, modulus, n)[1];
+            System.arraycopy(remainder, 0, r, 0, n);
+        } else {
+            // x is below m, so any limbs beyond the first n are zero
+            int len = Math.min(xlen, n);
+            System.arraycopy(x, 0, r, 0, len);
+            for(int i = len; i < n; i++) {
+                r[i] = 0;
+            }
+        }
+        multiply(r, rSquared, r, t);
+    }
+
+    /**
+     * Converts the value x of n limbs in Montgomery form back to the ordinary representation
+     * @param r array of n limbs receiving (x * R^(-1) mod m), may be the same array as x
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void fromMontgomery(long[] x, long[] r, long[] t) {
+        System.arraycopy(x, 0, t, 0, n);
+        for(int i = n; i < 2 * n + 1; i++) {
+            t[i] = 0;
+        }
+        reduce(t, r);
+    }
+
+    /**
+     * Computes the Montgomery product (x * y * R^(-1) mod m) of two values of n limbs in
+     * Montgomery form using the CIOS method. r may be the same array as x or y.
+     * @param r array of n limbs receiving the product
+     * @param t scratch array of at least n + 2 limbs
+     */
+    void multiply(long[] x, long[] y, long[] r, long[] t) {
+        long[] m = modulus;
+        for(int i = 0; i < n + 2; i++) {
+            t[i] = 0;
+        }
+
+        for(int i = 0; i < n; i++) {
+            // t += x * y[i]
+            long yi = y[i];
+            long carry = 0;
+            for(int j = 0; j < n; j++) {
+                long xj = x[j];
+                long low = xj * yi;
+                long high = LimbMath.multiplyHigh(xj, yi);
+                long tj = t[j];
+                low += tj;
+                if(LimbMath.unsignedLess(low, tj)) {
+                    high++;
+                }
+                low += carry;
+                if(LimbMath.unsignedLess(low, carry)) {
+                    high++;
+                }
+                t[j] = low;
+                carry = high;
+            }
+            long tn = t[n] + carry;
+            t[n + 1] = LimbMath.unsignedLess(tn, carry) ? 1 : 0;
+            t[n] = tn;
+
+            // t = (t + q * m) / 2^64, q chosen so that the lowest limb becomes zero
+            long q = t[0] * inverse;
+            long low = q * m[0];
+            long high = LimbMath.multiplyHigh(q, m[0]);
+            low += t[0];
+            if(LimbMath.unsignedLess(low, t[0])) {
+                high++;
+            }
+            carry = high;
+            for(int j = 1; j < n; j++) {
+                long mj = m[j];
+                low = q * mj;
+                high = LimbMath.multiplyHigh(q, mj);
+                long tj = t[j];
+                low += tj;
+                if(LimbMath.unsignedLess(low, tj)) {
+                    high++;
+                }
+                low += carry;
+                if(LimbMath.unsignedLess(low, carry)) {
+                    high++;
+                }
+                t[j - 1] = low;
+                carry = high;
+            }
+            tn = t[n] + carry;
+            t[n - 1] = tn;
+            t[n] = t[n + 1] + (LimbMath.unsignedLess(tn, carry) ? 1 : 0);
+        }
+
+        // the result is below 2m, one conditional subtraction brings it below m
+        if(t[n] != 0 || LimbMath.compare(t, n, m, n) >= 0) {
+            LimbMath.subtract(t, n, m, n, r);
+        } else {
+            System.arraycopy(t, 0, r, 0, n);
+        }
+    }
+
+    /**
+     * Computes the Montgomery square (x * x * R^(-1) mod m) of a value of n limbs in
+     * Montgomery form. The square is formed first, computing every cross product only once,
+     * and then reduced word by word. r may be the same array as x.
+     * @param r array of n limbs receiving the square
+     * @param t scratch array of at least 2n + 1 limbs
+     */
+    void square(long[] x, long[] r, long[] t) {
+        LimbMath.multiply(x, n, x, n, t);
+        t[2 * n] = 0;
+        reduce(t, r);
+    }
+
+    /**
+     * Montgomery reduction (t * R^(-1) mod m) of a value t below m * R
+     * @param t array of 2n + 1 limbs whose top limb is zero, overwritten
+     * @param r array of n limbs receiving the result
+     */
+    private void reduce(long[] t, long[] r) {
+        long[] m = modulus;
+        for(int i = 0; i < n; i++) {
+            // t += q * m * 2^(64i), q chosen so that limb i becomes zero
+            long q = t[i] * inverse;
+            long carry = 0;
+            for(int j = 0; j < n; j++) {
+                long mj = m[j];
+                long low = q * mj;
+                long high = LimbMath.multiplyHigh(q, mj);
+                long tj = t[i + j];
+                low += tj;
+                if(LimbMath.unsignedLess(low, tj)) {
+                    high++;
+                }
+                low += carry;
+                if(LimbMath.unsignedLess(low, carry)) {
+                    high++;
+                }
+                t[i + j] = low;
+                carry = high;
+            }
+            for(int k = i + n; carry != 0; k++) {
+                long tk = t[k] + carry;
+                carry = LimbMath.unsignedLess(tk, carry) ? 1 : 0;
+                t[k] = tk;
+            }
+        }
+
+        // the result t / R is below 2m, one conditional subtraction brings it below m
+        System.arraycopy(t, n, r, 0, n);
+        if(t[2 * n] != 0 || LimbMath.compare(r, n, m, n) >= 0) {
+            LimbMath.subtract(r, n, m, n, r);
+        }
+    }
+}
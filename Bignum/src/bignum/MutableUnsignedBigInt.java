@@ -0,0 +1,316 @@
+package bignum;
+
+/**
+ * The MutableUnsignedBigInt class for accumulating arbitrary-precision unsigned integers
+ * in place. Unlike UnsignedBigInt, every operation overwrites the value of this object
+ * and reuses its limb buffers, which only grow, so loops that repeatedly add, multiply
+ * or exponentiate values of similar size run without allocating. Instances are not
+ * thread-safe.
+ *
+ */
+public class MutableUnsignedBigInt {
+
+    /**
+     * Limbs of the value in little-endian order, only the first length limbs are significant
+     * and all limbs beyond them are zero
+     */
+    private long[] words;
+
+    /**
+     * Number of significant limbs, words[length - 1] being non-zero unless length is zero
+     */
+    private int length;
+
+    /**
+     * Buffer for products, swapped with words after each multiplication
+     */
+    private long[] scratch = new long[0];
+
+    /**
+     * Buffers for modPow
+     */
+    private ModContext.Workspace workspace;
+
+    /**
+     * Holds the limb of UnsignedBigInt operands kept in a single word
+     */
+    private final long[] single = new long[1];
+
+    /**
+     * Creates a new MutableUnsignedBigInt whose value is equal to zero
+     */
+    public MutableUnsignedBigInt() {
+        this(1);
+    }
+
+    /**
+     * Creates a new MutableUnsignedBigInt whose value is equal to zero, with room for values
+     * of the given number of 64-bit words without growing
+     * @param capacity initial capacity in 64-bit words
+     */
+    public MutableUnsignedBigInt(int capacity) {
+        this.words = new long[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Creates a new MutableUnsignedBigInt whose value is equal to the UnsignedBigInt b
+     * @param b UnsignedBigInt to be copied
+     */
+    public MutableUnsignedBigInt(UnsignedBigInt b) {
+        this(b.wordLength());
+        set(b);
+    }
+
+    /**
+     * Sets the value of this MutableUnsignedBigInt to the value of the UnsignedBigInt b
+     * @param b UnsignedBigInt to be copied
+     * @return this MutableUnsignedBigInt
+     */
+    public MutableUnsignedBigInt set(UnsignedBigInt b) {
+        return set(limbs(b), b.wordLength());
+    }
+
+    /**
+     * Sets the value of this MutableUnsignedBigInt to the value of the MutableUnsignedBigInt b
+     * @param b MutableUnsignedBigInt to be copied
+     * @return this MutableUnsignedBigInt
+     */
+    public MutableUnsignedBigInt set(MutableUnsignedBigInt b) {
+        return b == this ? this : set(b.words, b.length);
+    }
+
+    /**
+     * Sets the value of this MutableUnsignedBigInt to the long integer l
+     * @param l non-negative long integer l
+     * @return this MutableUnsignedBigInt
+     */
+    public MutableUnsignedBigInt set(long l) {
+        for(int i = 1; i < length; i++) {
+            words[i] = 0;
+        }
+        words[0] = l;
+        length = l != 0 ? 1 : 0;
+        return this;
+    }
+
+    /**
+     * Returns true, if the value of this MutableUnsignedBigInt is zero
+     * @return true, if this MutableUnsignedBigInt is zero, false otherwise
+     */
+    public boolean isZero() {
+        return length == 0;
+    }
+
+    /**
+     * Adds the UnsignedBigInt b to this MutableUnsignedBigInt
+     * @param b UnsignedBigInt containing addend b
+     * @return this MutableUnsignedBigInt, whose value is now (this + b)
+     */
+    public MutableUnsignedBigInt add(UnsignedBigInt b) {
+        return add(limbs(b), b.wordLength());
+    }
+
+    /**
+     * Adds the MutableUnsignedBigInt b to this MutableUnsignedBigInt
+     * @param b MutableUnsignedBigInt containing addend b, may be this MutableUnsignedBigInt
+     * @return this MutableUnsignedBigInt, whose value is now (this + b)
+     */
+    public MutableUnsignedBigInt add(MutableUnsignedBigInt b) {
+        return add(b.words, b.length);
+    }
+
+    /**
+     * Subtracts the UnsignedBigInt b from this MutableUnsignedBigInt
+     * @param b UnsignedBigInt containing subtrahend b
+     * @return this MutableUnsignedBigInt, whose value is now (this - b)
+     * @throws ArithmeticException if b is bigger than this MutableUnsignedBigInt, in which case
+     * the value is left unchanged
+     */
+    public MutableUnsignedBigInt subtract(UnsignedBigInt b) {
+        return subtract(limbs(b), b.wordLength());
+    }
+
+    /**
+     * Subtracts the MutableUnsignedBigInt b from this MutableUnsignedBigInt
+     * @param b MutableUnsignedBigInt containing subtrahend b, may be this MutableUnsignedBigInt
+     * @return this MutableUnsignedBigInt, whose value is now (this - b)
+     * @throws ArithmeticException if b is bigger than this MutableUnsignedBigInt, in which case
+     * the value is left unchanged
+     */
+    public MutableUnsignedBigInt subtract(MutableUnsignedBigInt b) {
+        return subtract(b.words, b.length);
+    }
+
+    /**
+     * Multiplies this MutableUnsignedBigInt with the UnsignedBigInt b
+     * @param b UnsignedBigInt containing multiplier b
+     * @return this MutableUnsignedBigInt, whose value is now (this * b)
+     */
+    public MutableUnsignedBigInt multiply(UnsignedBigInt b) {
+        return multiply(this.words, this.length, limbs(b), b.wordLength());
+    }
+
+    /**
+     * Sets the value of this MutableUnsignedBigInt to the product of the MutableUnsignedBigInts
+     * a and b, either of which may be this MutableUnsignedBigInt. Passing the same instance
+     * twice computes a square.
+     * @param a MutableUnsignedBigInt containing multiplicand a
+     * @param b MutableUnsignedBigInt containing multiplier b
+     * @return this MutableUnsignedBigInt, whose value is now (a * b)
+     */
+    public MutableUnsignedBigInt multiply(MutableUnsignedBigInt a, MutableUnsignedBigInt b) {
+        return multiply(a.words, a.length, b.words, b.length);
+    }
+
+    /**
+     * Squares this MutableUnsignedBigInt
+     * @return this MutableUnsignedBigInt, whose value is now (this * this)
+     */
+    public MutableUnsignedBigInt square() {
+        return multiply(this.words, this.length, this.words, this.length);
+    }
+
+    /**
+     * Reduces this MutableUnsignedBigInt modulo the modulus of the ModContext c
+     * @param c ModContext containing modulus m
+     * @return this MutableUnsignedBigInt, whose value is now (this mod m)
+     */
+    public MutableUnsignedBigInt mod(ModContext c) {
+        long[] r = c.reduce(words, length);
+        return set(r, r.length);
+    }
+
+    /**
+     * Sets the value of this MutableUnsignedBigInt to the MutableUnsignedBigInt b raised to
+     * the power represented by the UnsignedBigInt e modulo the modulus of the ModContext c.
+     * The buffers used are kept in this MutableUnsignedBigInt, so repeated calls with the
+     * same odd modulus do not allocate.
+     * @param b MutableUnsignedBigInt containing base b, may be this MutableUnsignedBigInt
+     * @param e UnsignedBigInt containing exponent e
+     * @param c ModContext containing modulus m
+     * @return this MutableUnsignedBigInt, whose value is now (b^e mod m)
+     */
+    public MutableUnsignedBigInt modPow(MutableUnsignedBigInt b, UnsignedBigInt e, ModContext c) {
+        int n = c.length();
+        ensureCapacity(n);
+        if(workspace == null) {
+            workspace = new ModContext.Workspace();
+        }
+        c.modPow(b.words, b.length, limbs(e), e.bitLength(), words, workspace);
+        for(int i = n; i < length; i++) {
+            words[i] = 0;
+        }
+        length = n;
+        trim();
+        return this;
+    }
+
+    /**
+     * Returns an UnsignedBigInt with the value of this MutableUnsignedBigInt. Only the
+     * significant limbs are copied, values below 2^64 need no array at all.
+     * @return UnsignedBigInt equal to this MutableUnsignedBigInt
+     */
+    public UnsignedBigInt toUnsignedBigInt() {
+        if(length <= 1) {
+            return new UnsignedBigInt(words[0]);
+        }
+        long[] copy = new long[length];
+        System.arraycopy(words, 0, copy, 0, length);
+        return UnsignedBigInt.valueOf(new BitArray(copy));
+    }
+
+    /**
+     * Returns the base10 string representation of this MutableUnsignedBigInt
+     * @return base10 string representation of this MutableUnsignedBigInt
+     */
+    @Override
+    public String toString() {
+        return DecimalConversion.toString(words, length);
+    }
+
+    /**
+     * Returns the limbs of b without allocating, in the buffer single if b is kept in a
+     * single word
+     */
+    private long[] limbs(UnsignedBigInt b) {
+        long[] limbs = b.limbs();
+        if(limbs == null) {
+            single[0] = b.longValue();
+            return single;
+        }
+        return limbs;
+    }
+
+    private MutableUnsignedBigInt set(long[] b, int blen) {
+        ensureCapacity(blen);
+        System.arraycopy(b, 0, words, 0, blen);
+        for(int i = blen; i < length; i++) {
+            words[i] = 0;
+        }
+        length = blen;
+        trim();
+        return this;
+    }
+
+    private MutableUnsignedBigInt add(long[] b, int blen) {
+        int len = Math.max(length, blen);
+        ensureCapacity(len + 1);
+        long carry = length >= blen ? LimbMath.add(words, length, b, blen, words) : LimbMath.add(b, blen, words, length, words);
+        words[len] = carry;
+        length = len + 1;
+        trim();
+        return this;
+    }
+
+    private MutableUnsignedBigInt subtract(long[] b, int blen) {
+        if(LimbMath.compare(words, length, b, blen) < 0) {
+            throw new ArithmeticException("Difference is negative");
+        }
+        LimbMath.subtract(words, length, b, blen, words);
+        trim();
+        return this;
+    }
+
+    private MutableUnsignedBigInt multiply(long[] x, int xlen, long[] y, int ylen) {
+        if(xlen == 0 || ylen == 0) {
+            return set(0);
+        }
+        int len = xlen + ylen;
+        if(scratch.length < len) {
+            scratch = new long[Math.max(len, words.length)];
+        }
+        LimbMath.multiply(x, xlen, y, ylen, scratch);
+
+        // the old limbs become the next scratch buffer, which must not contain stale limbs
+        long[] old = words;
+        for(int i = 0; i < length; i++) {
+            old[i] = 0;
+        }
+        words = scratch;
+        scratch = old;
+        length = len;
+        trim();
+        return this;
+    }
+
+    /**
+     * Grows the limb buffer to at least capacity limbs, keeping the value
+     */
+    private void ensureCapacity(int capacity) {
+        if(words.length < capacity) {
+            long[] grown = new long[Math.max(capacity, 2 * words.length)];
+            System.arraycopy(words, 0, grown, 0, length);
+            words = grown;
+        }
+    }
+
+    /**
+     * Drops leading zero limbs from length
+     */
+    private void trim() {
+        while(length > 0 && words[length - 1] == 0) {
+            length--;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package bignum;
+
+/**
+ * Division and integer roots by Newton iteration. The reciprocal of a divisor is computed
+ * from the reciprocal of its upper half, so that the working precision doubles with every
+ * step and the whole costs a small constant times one multiplication of the divisor's size.
+ * Roots are refined in the same way from the root of the upper half of the radicand.
+ */
+final class Newton {
+
+    private Newton() {
+    }
+
+    /**
+     * Divides u by v with the reciprocal of v. Below the top 2n bits, n being the bit
+     * length of v, the dividend is processed in blocks of n bits, each block together with
+     * the remainder so far being below 2^(2n) and thus divisible with a single reciprocal
+     * multiplication.
+     * @return An UnsignedBigInt array containing the quotient (index 0) and the remainder (index 1)
+     */
+    static UnsignedBigInt[] divideAndRemainder(UnsignedBigInt u, UnsignedBigInt v) {
+        return divideAndRemainder(u, v, fraction(v));
+    }
+
+    /**
+     * Divides u by v given fraction = fraction(v), so that the reciprocal of a divisor
+     * used repeatedly needs to be computed only once
+     * @return An UnsignedBigInt array containing the quotient (index 0) and the remainder (index 1)
+     */
+    static UnsignedBigInt[] divideAndRemainder(UnsignedBigInt u, UnsignedBigInt v, UnsignedBigInt fraction) {
+        int n = v.bitLength();
+        int m = u.bitLength();
+        int blocks = m <= 2 * n ? 1 : (m - 1) / n;
+        UnsignedBigInt mask = UnsignedBigInt.ONE.shiftLeft(n).subtract(UnsignedBigInt.ONE);
+
+        UnsignedBigInt q = u.shiftRight((blocks - 1) * n);
+        UnsignedBigInt[] qr = divide(q, v, fraction, n);
+        q = qr[0];
+        UnsignedBigInt r = qr[1];
+        for(int i = blocks - 2; i >= 0; i--) {
+            UnsignedBigInt t = r.shiftLeft(n).or(u.shiftRight(i * n).and(mask));
+            qr = divide(t, v, fraction, n);
+            q = q.shiftLeft(n).or(qr[0]);
+            r = qr[1];
+        }
+        return new UnsignedBigInt[] {q, r};
+    }
+
+    /**
+     * Returns floor(2^(2n) / v) - 2^n for v of n bits, the reciprocal of v without its
+     * leading bit as used by divideAndRemainder
+     */
+    static UnsignedBigInt fraction(UnsignedBigInt v) {
+        int n = v.bitLength();
+        return reciprocal(v, n).subtract(UnsignedBigInt.ONE.shiftLeft(n));
+    }
+
+    /**
+     * Divides t < 2^(2n) by v of n bits given fraction = floor(2^(2n) / v) - 2^n, the
+     * reciprocal without its leading bit, so that the estimate t1 + t1 * fraction / 2^n of
+     * the quotient, t1 being the upper n bits of t, needs a product of n-bit operands only.
+     * The estimate is never too big and at most a few units too small.
+     */
+    private static UnsignedBigInt[] divide(UnsignedBigInt t, UnsignedBigInt v, UnsignedBigInt fraction, int n) {
+        UnsignedBigInt t1 = t.shiftRight(n);
+        UnsignedBigInt q = t1.multiply(fraction).shiftRight(n).add(t1);
+        UnsignedBigInt r = t.subtract(q.multiply(v));
+        while(!r.smallerThan(v)) {
+            r = r.subtract(v);
+            q = q.add(1);
+        }
+        return new UnsignedBigInt[] {q, r};
+    }
+
+    /**
+     * Returns floor(2^(2n) / v) for v of exactly n bits. The approximation is off by at
+     * most a few units and is corrected with one multiplication.
+     */
+    static UnsignedBigInt reciprocal(UnsignedBigInt v, int n) {
+        UnsignedBigInt power = UnsignedBigInt.ONE.shiftLeft(2 * n);
+        UnsignedBigInt estimate = approximateReciprocal(v, n);
+        UnsignedBigInt product = v.multiply(estimate);
+        while(product.biggerThan(power)) {
+            estimate = estimate.subtract(UnsignedBigInt.ONE);
+            product = product.subtract(v);
+        }
+        UnsignedBigInt next = product.add(v);
+        while(!next.biggerThan(power)) {
+            estimate = estimate.add(1);
+            next = next.add(v);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns an approximation of 2^(2n) / v for v of exactly n bits. Below
+     * NEWTON_DIVISION_THRESHOLD words the reciprocal is computed exactly by long division;
+     * above it from the reciprocal r of the upper h = n / 2 + 2 bits of v with one Newton
+     * step R = 2r * 2^(n - h) - v * r^2 / 2^(2h). The step squares the relative error
+     * of r and never overshoots by more than the one unit lost in rounding.
+     */
+    private static UnsignedBigInt approximateReciprocal(UnsignedBigInt v, int n) {
+        if(n <= 64 * UnsignedBigInt.NEWTON_DIVISION_THRESHOLD) {
+            long[] p = UnsignedBigInt.ONE.shiftLeft(2 * n).bits().words();
+            long[] w = v.bits().words();
+            return UnsignedBigInt.valueOf(new BitArray(LimbMath.divideAndRemainder(p, p.length, w, (n + 63) >>> 6)[0]));
+        }
+
+        int h = n / 2 + 2;
+        UnsignedBigInt r = approximateReciprocal(v.shiftRight(n - h), h);
+        return r.shiftLeft(n - h + 1).subtract(v.multiply(r.square()).shiftRight(2 * h));
+    }
+
+    /**
+     * Returns floor(x^(1 / k)) for k >= 1. The root of x with its lowest k * s bits cut off,
+     * s being half the bit length of the root, shifted back by s bits gives an estimate
+     * from above with half the precision. Integer Newton iteration
+     * s' = ((k - 1) s + x / s^(k - 1)) / k brings it down to the root, usually in one step.
+     */
+    static UnsignedBigInt root(UnsignedBigInt x, int k) {
+        int bits = x.bitLength();
+        if(k == 1 || bits == 0) {
+            return x;
+        }
+        if(k >= bits) {
+            return UnsignedBigInt.ONE;
+        }
+
+        int shift = bits / (2 * k);
+        UnsignedBigInt s;
+        if(shift == 0) {
+            s = UnsignedBigInt.ONE.shiftLeft((bits + k - 1) / k);
+        } else {
+            s = root(x.shiftRight(k * shift), k).add(1).shiftLeft(shift);
+        }
+
+        // s stays at or above the root, so it is the root once s^k <= x
+        UnsignedBigInt exponent = new UnsignedBigInt(k - 1);
+        while(true) {
+            UnsignedBigInt power = k == 2 ? s : s.pow(exponent);
+            if(!power.multiply(s).biggerThan(x)) {
+                return s;
+            }
+            s = s.multiply(k - 1).add(x.divide(power)).divideAndRemainder(k)[0];
+        }
+    }
+}
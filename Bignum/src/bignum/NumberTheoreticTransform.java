@@ -0,0 +1,289 @@
+package bignum;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Multiplication of very large limb arrays with number-theoretic transforms. The operands
+ * are cut into 32-bit digits and convolved modulo three NTT-friendly primes below 2^31;
+ * the exact convolution is recovered with the Chinese remainder theorem (Garner's method).
+ * Products of residues use 32-bit Montgomery multiplication, so the transforms need no
+ * divisions.
+ */
+final class NumberTheoreticTransform {
+
+    private static final long[] PRIMES = {2013265921L, 469762049L, 167772161L};
+    private static final long[] GENERATORS = {31, 3, 3};
+
+    /**
+     * Largest supported transform length, limited by the 2-adic order of the smallest prime
+     */
+    private static final int MAX_LENGTH = 1 << 25;
+
+    /**
+     * Largest supported length of the shorter operand in 32-bit digits. Every coefficient
+     * of the convolution is below this times (2^32 - 1)^2, which must stay below the
+     * product of the primes.
+     */
+    private static final int MAX_SHORTER_DIGITS = 1 << 22;
+
+    private static final long DIGIT_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Root tables built so far, keyed by prime index * 32 + log2 of the transform length.
+     * They are softly referenced, as the tables of the longest transforms take hundreds
+     * of megabytes.
+     */
+    private static final Map<Integer, SoftReference<Prime>> TABLES = new HashMap<Integer, SoftReference<Prime>>();
+
+    private NumberTheoreticTransform() {
+    }
+
+    /**
+     * Returns true, if the product of operands of xlen and ylen limbs can be computed
+     * with a single transform
+     */
+    static boolean fits(int xlen, int ylen) {
+        long digits = 2L * xlen + 2L * ylen;
+        return digits <= MAX_LENGTH && 2L * Math.min(xlen, ylen) <= MAX_SHORTER_DIGITS;
+    }
+
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff. The operands must satisfy fits(xlen, ylen). A square needs only one
+     * forward transform per prime.
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiply(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen) {
+        int log = 0;
+        while(1 << log < 2 * (xlen + ylen)) {
+            log++;
+        }
+        int n = 1 << log;
+
+        boolean square = LimbMath.isSquare(x, xoff, xlen, y, yoff, ylen);
+        int[][] residues = new int[PRIMES.length][];
+        for(int i = 0; i < PRIMES.length; i++) {
+            Prime p = prime(i, log);
+            int[] a = toDigits(x, xoff, xlen, n);
+            p.forward(a);
+            int[] b = a;
+            if(!square) {
+                b = toDigits(y, yoff, ylen, n);
+                p.forward(b);
+            }
+            for(int j = 0; j < n; j++) {
+                a[j] = p.multiply(a[j], b[j]);
+            }
+            p.inverse(a);
+            residues[i] = a;
+        }
+
+        return recombine(residues, xlen + ylen);
+    }
+
+    /**
+     * Returns the tables for transforms of length 2^log modulo PRIMES[i], building and
+     * caching them if they are missing or have been collected
+     */
+    private static Prime prime(int i, int log) {
+        Integer key = i * 32 + log;
+        synchronized(TABLES) {
+            SoftReference<Prime> ref = TABLES.get(key);
+            Prime p = ref != null ? ref.get() : null;
+            if(p == null) {
+                p = new Prime(PRIMES[i], GENERATORS[i], 1 << log);
+                TABLES.put(key, new SoftReference<Prime>(p));
+            }
+            return p;
+        }
+    }
+
+    /**
+     * Splits len limbs of x starting at offset into 32-bit digits, zero-padded to n digits
+     */
+    private static int[] toDigits(long[] x, int offset, int len, int n) {
+        int[] d = new int[n];
+        for(int i = 0; i < len; i++) {
+            long xi = x[offset + i];
+            d[2 * i] = (int)xi;
+            d[2 * i + 1] = (int)(xi >>> 32);
+        }
+        return d;
+    }
+
+    /**
+     * Recovers the convolution coefficients from their residues and sums them into limbs
+     * @return array of len limbs containing sum(c_i * 2^(32i))
+     */
+    private static long[] recombine(int[][] residues, int len) {
+        long p1 = PRIMES[0];
+        long p2 = PRIMES[1];
+        long p3 = PRIMES[2];
+        long p1p2 = p1 * p2;
+        long p1InverseModP2 = modPow(p1 % p2, p2 - 2, p2);
+        long p1p2InverseModP3 = modPow(p1p2 % p3, p3 - 2, p3);
+
+        long[] r = new long[len];
+        int digits = 2 * len;
+        // 128-bit carry (carryHigh, carryLow)
+        long carryLow = 0;
+        long carryHigh = 0;
+        for(int i = 0; i < digits; i++) {
+            long r1 = residues[0][i] & DIGIT_MASK;
+            long r2 = residues[1][i] & DIGIT_MASK;
+            long r3 = residues[2][i] & DIGIT_MASK;
+
+            // c = r1 + p1 * k2 + p1 * p2 * k3
+            long k2 = ((r2 - r1 % p2 + p2) % p2) * p1InverseModP2 % p2;
+            long c12 = r1 + p1 * k2;
+            long k3 = ((r3 - c12 % p3 + p3) % p3);
+            k3 = k3 * p1p2InverseModP3 % p3;
+            long low = p1p2 * k3;
+            long high = LimbMath.multiplyHigh(p1p2, k3);
+            low += c12;
+            if(LimbMath.unsignedLess(low, c12)) {
+                high++;
+            }
+
+            carryLow += low;
+            if(LimbMath.unsignedLess(carryLow, low)) {
+                carryHigh++;
+            }
+            carryHigh += high;
+
+            long digit = carryLow & DIGIT_MASK;
+            r[i >>> 1] |= digit << ((i & 1) * 32);
+            carryLow = (carryLow >>> 32) | (carryHigh << 32);
+            carryHigh >>>= 32;
+        }
+        return r;
+    }
+
+    private static long modPow(long b, long e, long p) {
+        long result = 1;
+        b %= p;
+        while(e > 0) {
+            if((e & 1) != 0) {
+                result = result * b % p;
+            }
+            b = b * b % p;
+            e >>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Transforms of length n modulo one prime p < 2^31. Twiddle factors are kept in
+     * Montgomery form (w * 2^32 mod p), so multiplying an ordinary residue with one
+     * yields an ordinary residue. Instances are immutable and shared by all multiplications
+     * of their length.
+     */
+    private static final class Prime {
+
+        private final long p;
+
+        /**
+         * -p^(-1) mod 2^32
+         */
+        private final long inverse;
+
+        private final int n;
+
+        /**
+         * roots[j] = w^j in Montgomery form for j < n / 2, w being a primitive n-th root of unity
+         */
+        private final int[] roots;
+        private final int[] inverseRoots;
+
+        /**
+         * n^(-1) * 2^64 mod p in Montgomery form, scaling the inverse transform by n^(-1)
+         * and cancelling the 2^(-32) factor of the pointwise Montgomery products
+         */
+        private final int scale;
+
+        Prime(long p, long g, int n) {
+            this.p = p;
+            this.n = n;
+
+            long inv = p;
+            for(int i = 0; i < 5; i++) {
+                inv *= 2 - p * inv;
+            }
+            this.inverse = -inv & DIGIT_MASK;
+
+            long r = (1L << 32) % p;
+            long w = modPow(g, (p - 1) / n, p);
+            long wInverse = modPow(w, p - 2, p);
+            roots = new int[Math.max(n / 2, 1)];
+            inverseRoots = new int[Math.max(n / 2, 1)];
+            long power = 1;
+            long inversePower = 1;
+            for(int j = 0; j < roots.length; j++) {
+                roots[j] = (int)(power * r % p);
+                inverseRoots[j] = (int)(inversePower * r % p);
+                power = power * w % p;
+                inversePower = inversePower * wInverse % p;
+            }
+
+            long nInverse = modPow(n % p, p - 2, p);
+            scale = (int)(nInverse * r % p * r % p);
+        }
+
+        /**
+         * Returns x * y * 2^(-32) mod p
+         */
+        int multiply(int x, int y) {
+            long t = (x & DIGIT_MASK) * (y & DIGIT_MASK);
+            long m = ((t & DIGIT_MASK) * inverse) & DIGIT_MASK;
+            long u = (t + m * p) >>> 32;
+            return (int)(u >= p ? u - p : u);
+        }
+
+        /**
+         * Decimation-in-frequency transform, natural order in, bit-reversed order out.
+         * Digits are reduced modulo p on the first pass.
+         */
+        void forward(int[] a) {
+            for(int i = 0; i < n; i++) {
+                a[i] = (int)((a[i] & DIGIT_MASK) % p);
+            }
+            for(int len = n / 2; len >= 1; len >>= 1) {
+                int step = n / (2 * len);
+                for(int i = 0; i < n; i += 2 * len) {
+                    for(int j = 0; j < len; j++) {
+                        long u = a[i + j];
+                        long v = a[i + j + len];
+                        long s = u + v;
+                        a[i + j] = (int)(s >= p ? s - p : s);
+                        a[i + j + len] = multiply((int)(u - v + p), roots[j * step]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Decimation-in-time inverse transform, bit-reversed order in, natural order out.
+         * The result is scaled by 2^32 to cancel the factor left by multiply.
+         */
+        void inverse(int[] a) {
+            for(int len = 1; len < n; len <<= 1) {
+                int step = n / (2 * len);
+                for(int i = 0; i < n; i += 2 * len) {
+                    for(int j = 0; j < len; j++) {
+                        long u = a[i + j];
+                        long v = multiply(a[i + j + len], inverseRoots[j * step]);
+                        long s = u + v;
+                        a[i + j] = (int)(s >= p ? s - p : s);
+                        long d = u - v;
+                        a[i + j + len] = (int)(d < 0 ? d + p : d);
+                    }
+                }
+            }
+            for(int i = 0; i < n; i++) {
+                a[i] = multiply(a[i], scale);
+            }
+        }
+    }
+}
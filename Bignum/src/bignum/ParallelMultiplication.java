@@ -0,0 +1,90 @@
+package bignum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Computes the independent sub-products of Karatsuba and Toom-Cook multiplication on the
+ * shared pool of Workers.
+ */
+final class ParallelMultiplication {
+
+    private ParallelMultiplication() {
+    }
+
+    /**
+     * Returns the number of recursion levels to run in parallel so that the sub-products
+     * of the top levels keep every processor busy
+     * @return parallel recursion depth for LimbMath.multiply
+     */
+    static int depth() {
+        int tasks = 4 * Workers.parallelism();
+        int depth = 0;
+        for(int products = 1; products < tasks; products *= 3) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Computes the given products, in parallel if depth is positive. The products are
+     * computed with LimbMath.multiply using depth - 1.
+     * @param depth number of recursion levels that may still run sub-products in parallel
+     * @return array containing the limbs of each product, in the order given
+     */
+    static long[][] multiplyAll(Product[] products, int depth) {
+        long[][] results = new long[products.length][];
+        if(depth <= 0) {
+            for(int i = 0; i < products.length; i++) {
+                results[i] = products[i].call();
+            }
+            return results;
+        }
+
+        int next = depth - 1;
+        List<Product> tasks = new ArrayList<Product>(products.length);
+        for(Product product : products) {
+            tasks.add(product.withDepth(next));
+        }
+        return Workers.invokeAll(tasks).toArray(results);
+    }
+
+    /**
+     * One sub-product: the xlen limbs of x starting at xoff times the ylen limbs of y
+     * starting at yoff
+     */
+    static final class Product implements Callable<long[]> {
+
+        private final long[] x;
+        private final int xoff;
+        private final int xlen;
+        private final long[] y;
+        private final int yoff;
+        private final int ylen;
+        private final int depth;
+
+        Product(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen) {
+            this(x, xoff, xlen, y, yoff, ylen, 0);
+        }
+
+        private Product(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen, int depth) {
+            this.x = x;
+            this.xoff = xoff;
+            this.xlen = xlen;
+            this.y = y;
+            this.yoff = yoff;
+            this.ylen = ylen;
+            this.depth = depth;
+        }
+
+        Product withDepth(int depth) {
+            return new Product(x, xoff, xlen, y, yoff, ylen, depth);
+        }
+
+        @Override
+        public long[] call() {
+            return LimbMath.multiply(x, xoff, xlen, y, yoff, ylen, depth);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,283 @@
+package bignum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Probabilistic primality testing and prime generation. Candidates are first divided by
+ * the small primes below SMALL_PRIME_LIMIT, several primes at a time through their product,
+ * and only the survivors are given to the Miller-Rabin test (HAC 4.24). Random primes are
+ * searched for with an incremental sieve over a run of odd numbers, so the residues modulo
+ * the small primes are computed once per run instead of once per candidate.
+ */
+final class Primes {
+
+    /**
+     * Upper limit of the small primes used for trial division and sieving
+     */
+    private static final int SMALL_PRIME_LIMIT = 8192;
+
+    /**
+     * Odd primes below SMALL_PRIME_LIMIT
+     */
+    private static final int[] SMALL_PRIMES;
+
+    /**
+     * Products of consecutive small primes, each below 2^63. PRODUCT_GROUPS[i] is the index
+     * into SMALL_PRIMES of the first prime in PRIME_PRODUCTS[i].
+     */
+    private static final long[] PRIME_PRODUCTS;
+    private static final int[] PRODUCT_GROUPS;
+
+    /**
+     * Source of the Miller-Rabin bases for isProbablePrime
+     */
+    private static final Random BASES = new Random();
+
+    static {
+        boolean[] composite = new boolean[SMALL_PRIME_LIMIT];
+        List<Integer> primes = new ArrayList<Integer>();
+        for(int i = 3; i < SMALL_PRIME_LIMIT; i += 2) {
+            if(!composite[i]) {
+                primes.add(i);
+                for(int j = i * i; j < SMALL_PRIME_LIMIT; j += 2 * i) {
+                    composite[j] = true;
+                }
+            }
+        }
+        SMALL_PRIMES = new int[primes.size()];
+        for(int i = 0; i < SMALL_PRIMES.length; i++) {
+            SMALL_PRIMES[i] = primes.get(i);
+        }
+
+        List<Long> p = new ArrayList<Long>();
+        List<Integer> g = new ArrayList<Integer>();
+        int i = 0;
+        while(i < SMALL_PRIMES.length) {
+            g.add(i);
+            long product = SMALL_PRIMES[i++];
+            while(i < SMALL_PRIMES.length && product <= Long.MAX_VALUE / SMALL_PRIMES[i]) {
+                product *= SMALL_PRIMES[i++];
+            }
+            p.add(product);
+        }
+        PRIME_PRODUCTS = new long[p.size()];
+        PRODUCT_GROUPS = new int[g.size() + 1];
+        for(int j = 0; j < PRIME_PRODUCTS.length; j++) {
+            PRIME_PRODUCTS[j] = p.get(j);
+            PRODUCT_GROUPS[j] = g.get(j);
+        }
+        PRODUCT_GROUPS[PRIME_PRODUCTS.length] = SMALL_PRIMES.length;
+    }
+
+    private Primes() {
+    }
+
+    /**
+     * Lower bounds of bit length ranges and the Miller-Rabin rounds for each range: the
+     * smallest count for which the bounds of Damgard, Landrock and Pomerance (HAC fact
+     * 4.48) on the error probability for random k-bit candidates are below 2^-100 at every
+     * length k of the range. Below 64 bits only the worst case 4^(-rounds) applies.
+     */
+    private static final int[] ROUND_BITS = {0, 64, 96, 128, 160, 192, 256, 320, 384, 512, 640, 768, 1024, 1280, 2048};
+    private static final int[] ROUND_COUNTS = {50, 44, 37, 30, 24, 23, 17, 13, 11, 8, 6, 5, 4, 3, 2};
+
+    /**
+     * Returns the number of Miller-Rabin rounds giving an error probability below 2^-100
+     * for random candidates of the given bit length, by the bounds of Damgard, Landrock and
+     * Pomerance (HAC fact 4.48). At least two rounds are run at any length.
+     */
+    static int rounds(int bits) {
+        int i = ROUND_BITS.length - 1;
+        while(bits < ROUND_BITS[i]) {
+            i--;
+        }
+        return ROUND_COUNTS[i];
+    }
+
+    /**
+     * Returns true, if x is probably prime. Composites are detected with a probability of
+     * at least 1 - 4^(-rounds); with rounds of zero or less only trial division is done.
+     */
+    static boolean isProbablePrime(UnsignedBigInt x, int rounds) {
+        if(x.bitLength() <= 13) {
+            long v = x.longValue();
+            if(v < 2) {
+                return false;
+            }
+            if(v % 2 == 0) {
+                return v == 2;
+            }
+            for(int p : SMALL_PRIMES) {
+                if(p * p > v) {
+                    break;
+                }
+                if(v % p == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(!x.testBit(0)) {
+            return false;
+        }
+        for(int i = 0; i < PRIME_PRODUCTS.length; i++) {
+            long r = x.mod(PRIME_PRODUCTS[i]);
+            for(int j = PRODUCT_GROUPS[i]; j < PRODUCT_GROUPS[i + 1]; j++) {
+                if(r % SMALL_PRIMES[j] == 0) {
+                    return false;
+                }
+            }
+        }
+        return passesMillerRabin(x, rounds);
+    }
+
+    /**
+     * Runs rounds Miller-Rabin tests with random bases on the odd number x > 3
+     */
+    private static boolean passesMillerRabin(UnsignedBigInt x, int rounds) {
+        ModContext context = new ModContext(x);
+        UnsignedBigInt minusOne = x.subtract(UnsignedBigInt.ONE);
+        int s = minusOne.getLowestSetBit();
+        UnsignedBigInt d = minusOne.shiftRight(s);
+        UnsignedBigInt range = x.subtract(UnsignedBigInt.TWO.add(UnsignedBigInt.ONE));
+
+        for(int round = 0; round < rounds; round++) {
+            // base in [2, x - 2]
+            UnsignedBigInt a = random(range.bitLength() + 64, BASES).mod(range).add(UnsignedBigInt.TWO);
+            UnsignedBigInt y = context.modPow(a, d);
+            if(y.equals(UnsignedBigInt.ONE) || y.equals(minusOne)) {
+                continue;
+            }
+            boolean witness = true;
+            for(int j = 1; j < s && witness; j++) {
+                y = context.sqrMod(y);
+                if(y.equals(minusOne)) {
+                    witness = false;
+                } else if(y.equals(UnsignedBigInt.ONE)) {
+                    break;
+                }
+            }
+            if(witness) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a random prime of exactly the given bit length
+     * @param parallel true, if the candidates surviving the sieve are tested on all processors
+     */
+    static UnsignedBigInt probablePrime(int bits, Random rnd, boolean parallel) {
+        if(bits < 2) {
+            throw new ArithmeticException("Bit length must be at least 2");
+        }
+        int rounds = rounds(bits);
+        if(bits <= 16) {
+            while(true) {
+                UnsignedBigInt candidate = random(bits, rnd).or(UnsignedBigInt.ONE.shiftLeft(bits - 1));
+                if(bits > 2) {
+                    candidate = candidate.or(UnsignedBigInt.ONE);
+                }
+                if(isProbablePrime(candidate, rounds)) {
+                    return candidate;
+                }
+            }
+        }
+
+        int searchLength = (bits / 20 + 1) * 64;
+        while(true) {
+            UnsignedBigInt start = random(bits, rnd).or(UnsignedBigInt.ONE.shiftLeft(bits - 1)).or(UnsignedBigInt.ONE);
+            boolean[] composite = sieve(start, searchLength);
+            List<UnsignedBigInt> candidates = new ArrayList<UnsignedBigInt>();
+            for(int k = 0; k < searchLength; k++) {
+                if(!composite[k]) {
+                    UnsignedBigInt candidate = start.add(2L * k);
+                    if(candidate.bitLength() > bits) {
+                        break;
+                    }
+                    candidates.add(candidate);
+                }
+            }
+            UnsignedBigInt prime = parallel ? findParallel(candidates, rounds) : find(candidates, rounds);
+            if(prime != null) {
+                return prime;
+            }
+        }
+    }
+
+    /**
+     * Marks the offsets k for which start + 2k is divisible by a small prime
+     */
+    private static boolean[] sieve(UnsignedBigInt start, int searchLength) {
+        boolean[] composite = new boolean[searchLength];
+        for(int i = 0; i < PRIME_PRODUCTS.length; i++) {
+            long r = start.mod(PRIME_PRODUCTS[i]);
+            for(int j = PRODUCT_GROUPS[i]; j < PRODUCT_GROUPS[i + 1]; j++) {
+                int p = SMALL_PRIMES[j];
+
+                // start + 2k = 0 (mod p) for k = -start / 2 = (p - start) * (p + 1) / 2 (mod p)
+                long k = (p - r % p) % p * ((p + 1) / 2) % p;
+                for(; k < searchLength; k += p) {
+                    composite[(int)k] = true;
+                }
+            }
+        }
+        return composite;
+    }
+
+    /**
+     * Returns the first probable prime in candidates, null if there is none
+     */
+    private static UnsignedBigInt find(List<UnsignedBigInt> candidates, int rounds) {
+        for(UnsignedBigInt candidate : candidates) {
+            if(passesMillerRabin(candidate, rounds)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first probable prime in candidates, null if there is none, testing one
+     * candidate per processor at a time
+     */
+    private static UnsignedBigInt findParallel(List<UnsignedBigInt> candidates, final int rounds) {
+        int batch = Workers.parallelism();
+        for(int from = 0; from < candidates.size(); from += batch) {
+            List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(batch);
+            for(final UnsignedBigInt candidate : candidates.subList(from, Math.min(from + batch, candidates.size()))) {
+                tasks.add(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return passesMillerRabin(candidate, rounds);
+                    }
+                });
+            }
+            List<Boolean> results = Workers.invokeAll(tasks);
+            for(int i = 0; i < results.size(); i++) {
+                if(results.get(i)) {
+                    return candidates.get(from + i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a random UnsignedBigInt of at most the given number of bits
+     */
+    private static UnsignedBigInt random(int bits, Random rnd) {
+        long[] words = new long[(bits + 63) >>> 6];
+        for(int i = 0; i < words.length; i++) {
+            words[i] = rnd.nextLong();
+        }
+        if((bits & 63) != 0) {
+            words[words.length - 1] >>>= 64 - (bits & 63);
+        }
+        return UnsignedBigInt.valueOf(new BitArray(words));
+    }
+}
@@ -0,0 +1,189 @@
+package bignum;
+
+/**
+ * Toom-Cook 3-way multiplication of limb arrays. Both operands are split into three
+ * pieces of k limbs, evaluated at the points 0, 1, -1, 2 and infinity, and the five
+ * point products are interpolated with the sequence of Bodrato (also used by
+ * java.math.BigInteger). The point products are computed with LimbMath.multiply,
+ * in parallel if requested.
+ */
+final class ToomCook3 {
+
+    /**
+     * 3^(-1) mod 2^64
+     */
+    private static final long INVERSE_OF_THREE = 0xAAAAAAAAAAAAAAABL;
+
+    private ToomCook3() {
+    }
+
+    /**
+     * Returns true, if the operands are balanced enough for Toom-Cook 3-way multiplication,
+     * i.e. all three pieces of both operands are non-empty
+     */
+    static boolean fits(int xlen, int ylen) {
+        int k = (Math.max(xlen, ylen) + 2) / 3;
+        return Math.min(xlen, ylen) > 2 * k;
+    }
+
+    /**
+     * Multiplies the xlen limbs of x starting at xoff with the ylen limbs of y starting
+     * at yoff. The operands must satisfy fits(xlen, ylen).
+     * @param depth number of recursion levels that may still run sub-products in parallel
+     * @return array of xlen + ylen limbs containing (x * y)
+     */
+    static long[] multiply(long[] x, int xoff, int xlen, long[] y, int yoff, int ylen, int depth) {
+        int k = (Math.max(xlen, ylen) + 2) / 3;
+
+        // a square evaluates its operand once, so every point product is a square as well
+        Points a = new Points(x, xoff, xlen, k);
+        Points b = LimbMath.isSquare(x, xoff, xlen, y, yoff, ylen) ? a : new Points(y, yoff, ylen, k);
+        boolean negative = a.negative != b.negative;
+
+        long[][] products = ParallelMultiplication.multiplyAll(new ParallelMultiplication.Product[] {
+            new ParallelMultiplication.Product(a.v0, 0, k, b.v0, 0, k),
+            new ParallelMultiplication.Product(a.vinf, 0, xlen - 2 * k, b.vinf, 0, ylen - 2 * k),
+            new ParallelMultiplication.Product(a.vm1, 0, k + 1, b.vm1, 0, k + 1),
+            new ParallelMultiplication.Product(a.v1, 0, k + 1, b.v1, 0, k + 1),
+            new ParallelMultiplication.Product(a.v2, 0, k + 1, b.v2, 0, k + 1)
+        }, depth);
+        long[] v0 = products[0];
+        long[] vinf = products[1];
+        long[] vm1 = products[2];
+        long[] v1 = products[3];
+        long[] v2 = products[4];
+
+        // interpolation, every intermediate value except vm1 is non-negative
+        long[] t2 = subtractSigned(v2, vm1, negative);
+        exactDivideByThree(t2);
+        long[] tm1 = subtractSigned(v1, vm1, negative);
+        LimbMath.shiftRight(tm1, tm1.length, 1, tm1);
+        long[] t1 = subtract(v1, v0);
+        t2 = subtract(t2, t1);
+        LimbMath.shiftRight(t2, t2.length, 1, t2);
+        t1 = subtract(subtract(t1, tm1), vinf);
+        t2 = subtract(subtract(t2, vinf), vinf);
+        tm1 = subtract(tm1, t2);
+
+        long[] r = new long[xlen + ylen];
+        System.arraycopy(v0, 0, r, 0, v0.length);
+        LimbMath.addAt(r, k, tm1, tm1.length);
+        LimbMath.addAt(r, 2 * k, t1, t1.length);
+        LimbMath.addAt(r, 3 * k, t2, t2.length);
+        LimbMath.addAt(r, 4 * k, vinf, vinf.length);
+        return r;
+    }
+
+    /**
+     * Copies len limbs of x starting at offset into a new array of size limbs
+     */
+    private static long[] slice(long[] x, int offset, int len, int size) {
+        long[] s = new long[size];
+        System.arraycopy(x, offset, s, 0, len);
+        return s;
+    }
+
+    /**
+     * Computes |x - y| of two values of equal length into r
+     * @return true, if x is smaller than y
+     */
+    private static boolean absoluteDifference(long[] x, long[] y, long[] r) {
+        if(LimbMath.compare(x, x.length, y, y.length) < 0) {
+            LimbMath.subtract(y, y.length, x, x.length, r);
+            return true;
+        }
+        LimbMath.subtract(x, x.length, y, y.length, r);
+        return false;
+    }
+
+    /**
+     * Returns (x - y), or (x + y) if y is negative. The result must be non-negative.
+     */
+    private static long[] subtractSigned(long[] x, long[] y, boolean negative) {
+        if(negative) {
+            return LimbMath.add(x, x.length, y, y.length);
+        }
+        return subtract(x, y);
+    }
+
+    /**
+     * Returns (x - y), where x >= y
+     */
+    private static long[] subtract(long[] x, long[] y) {
+        int ylen = y.length;
+        while(ylen > 0 && y[ylen - 1] == 0) {
+            ylen--;
+        }
+        long[] r = new long[Math.max(x.length, ylen)];
+        LimbMath.subtract(x, x.length, y, ylen, r);
+        return r;
+    }
+
+    /**
+     * Divides x in place by three. x must be a multiple of three.
+     */
+    private static void exactDivideByThree(long[] x) {
+        long borrow = 0;
+        for(int i = 0; i < x.length; i++) {
+            long xi = x[i];
+            long s = xi - borrow;
+            long b = LimbMath.unsignedLess(xi, borrow) ? 1 : 0;
+            long q = s * INVERSE_OF_THREE;
+            x[i] = q;
+            // 3q = high * 2^64 + s, the high word is borrowed from the next limb
+            borrow = b;
+            if(!LimbMath.unsignedLess(q, 0x5555555555555556L)) {
+                borrow++;
+            }
+            if(!LimbMath.unsignedLess(q, 0xAAAAAAAAAAAAAAABL)) {
+                borrow++;
+            }
+        }
+    }
+
+    /**
+     * One operand split into three pieces of k limbs and evaluated at the points
+     * 0, infinity, -1, 1 and 2. Every value has k + 1 limbs.
+     */
+    private static final class Points {
+
+        final long[] v0;
+        final long[] vinf;
+
+        /**
+         * |a2 - a1 + a0|, the sign being kept in negative
+         */
+        final long[] vm1;
+        final boolean negative;
+
+        final long[] v1;
+        final long[] v2;
+
+        Points(long[] x, int xoff, int xlen, int k) {
+            long[] a0 = slice(x, xoff, k, k + 1);
+            long[] a1 = slice(x, xoff + k, k, k + 1);
+            long[] a2 = slice(x, xoff + 2 * k, xlen - 2 * k, k + 1);
+
+            // da1 = a2 + a0, dam1 = |a2 - a1 + a0|
+            long[] da1 = new long[k + 1];
+            LimbMath.add(a2, k + 1, a0, k + 1, da1);
+            long[] dam1 = new long[k + 1];
+            negative = absoluteDifference(da1, a1, dam1);
+
+            // da1 = a2 + a1 + a0
+            LimbMath.add(da1, k + 1, a1, k + 1, da1);
+
+            // da2 = 4a2 + 2a1 + a0
+            long[] da2 = new long[k + 1];
+            LimbMath.add(da1, k + 1, a2, k + 1, da2);
+            LimbMath.shiftLeft(da2, k + 1, 1, da2);
+            LimbMath.subtract(da2, k + 1, a0, k + 1, da2);
+
+            v0 = a0;
+            vinf = a2;
+            vm1 = dam1;
+            v1 = da1;
+            v2 = da2;
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package bignum;
 
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+
 /**
  * The UnsignedBigInt class for storing arbitrary-precision unsigned (non-negative) integers.
  * 
  */
-public class UnsignedBigInt {
+public class UnsignedBigInt implements Comparable<UnsignedBigInt> {
 
     public static UnsignedBigInt ZERO = new UnsignedBigInt(0);
     public static UnsignedBigInt ONE = new UnsignedBigInt(1);
@@ -12,16 +19,70 @@ public class UnsignedBigInt {
     public static UnsignedBigInt TEN = new UnsignedBigInt(10);
     
     /**
-     * BitArray for storing the bits of this UnsignedBigInt in little-endian byte order
+     * Length of the shorter operand in 64-bit words from which on multiply switches from
+     * schoolbook to Karatsuba multiplication
+     */
+    public static int KARATSUBA_THRESHOLD = 32;
+    
+    /**
+     * Length in 64-bit words from which on square switches from schoolbook to Karatsuba
+     * squaring, which pays off later than for general products
+     */
+    public static int KARATSUBA_SQUARE_THRESHOLD = 48;
+    
+    /**
+     * Length of the shorter operand in 64-bit words from which on multiply switches from
+     * Karatsuba to Toom-Cook 3-way multiplication
+     */
+    public static int TOOM_COOK_THRESHOLD = 256;
+    
+    /**
+     * Length of the shorter operand in 64-bit words from which on multiply switches to
+     * multiplication with number-theoretic transforms
+     */
+    public static int NTT_THRESHOLD = 2048;
+    
+    /**
+     * Length of the shorter operand in 64-bit words from which on parallelMultiply computes
+     * sub-products on several threads
+     */
+    public static int PARALLEL_THRESHOLD = 1024;
+    
+    /**
+     * Length in 64-bit words (about 19 decimal digits each) from which on decimal strings
+     * are parsed and formatted by divide and conquer instead of in chunks of 18 digits
+     */
+    public static int RADIX_CONVERSION_THRESHOLD = 64;
+    
+    /**
+     * Length in 64-bit words of both the divisor and the quotient from which on
+     * divideAndRemainder divides by multiplying with a reciprocal computed by Newton
+     * iteration instead of by long division
+     */
+    public static int NEWTON_DIVISION_THRESHOLD = 2048;
+    
+    /**
+     * BitArray for storing the bits of this UnsignedBigInt in little-endian byte order, null
+     * when the value fits in a single 64-bit word and is kept in small instead
      */
     private BitArray bits;
     
+    /**
+     * Value of this UnsignedBigInt as an unsigned 64-bit word, used while bits is null
+     */
+    private long small;
+    
+    /**
+     * Cached hash code, zero until computed
+     */
+    private int hash;
+    
     /**
      * Creates a new UnsignedBigInt whose value is equal to the long integer l
      * @param l non-negative long integer l
      */
     public UnsignedBigInt(long l) {
-        this.bits = new BitArray(l);
+        this.small = l;
     }
     
     /**
@@ -29,23 +90,13 @@ public class UnsignedBigInt {
      * @param s String containing base10 string representation of an non-negative integer
      */
     public UnsignedBigInt(String s) {
-        this();
-        
-        UnsignedBigInt newBigInt = new UnsignedBigInt();
-        
-        for(int i = 0; i < s.length(); i++) {
-            newBigInt = newBigInt.multiply(UnsignedBigInt.TEN);
-            newBigInt = newBigInt.add(new UnsignedBigInt(Long.parseLong(s.charAt(i) + "")));
-        }
-    
-        this.bits = newBigInt.bits;
+        this(parse(s), false);
     }
     
     /**
      * Creates a new UnsignedBigInt whose value is equal to zero
      */
     public UnsignedBigInt() {
-        this.bits = new BitArray();
     }
     
     /**
@@ -53,15 +104,106 @@ public class UnsignedBigInt {
      * @param b UnsignedBigInt to be copied
      */
     public UnsignedBigInt(UnsignedBigInt b) {
-        this.bits = new BitArray(b.bits);
+        this.bits = b.bits != null ? new BitArray(b.bits) : null;
+        this.small = b.small;
     }
     
     /**
-     * Creates a new UnsignedBigInt whose value is equal to the value of bits given
+     * Creates a new UnsignedBigInt whose value is equal to the value of bits given. Values
+     * below 2^64 are kept in a single word.
      * @param bits BitArray to be copied
      */
     public UnsignedBigInt(BitArray bits) {
-        this.bits = bits;
+        this(bits, true);
+    }
+    
+    /**
+     * Creates a new UnsignedBigInt whose value is equal to the value of bits given, taking
+     * over bits itself unless copy is set
+     */
+    private UnsignedBigInt(BitArray bits, boolean copy) {
+        if(bits.wordLength() > 1) {
+            this.bits = copy ? new BitArray(bits) : bits;
+        } else {
+            this.small = bits.toLong();
+        }
+    }
+    
+    /**
+     * Returns an UnsignedBigInt whose value is equal to the value of bits without copying
+     * it. For callers that own bits, which must not be modified afterwards.
+     */
+    static UnsignedBigInt valueOf(BitArray bits) {
+        return new UnsignedBigInt(bits, false);
+    }
+    
+    /**
+     * Parses the base10 string representation s into a BitArray
+     */
+    private static BitArray parse(String s) {
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] words = DecimalConversion.parse(s);
+        BitArray bits = new BitArray(words);
+        if(timed) {
+            Metrics.record(Metrics.Operation.PARSE, bits.length(), start, words.length);
+        }
+        return bits;
+    }
+    
+    /**
+     * Creates a new UnsignedBigInt whose value is the unsigned 128-bit value (high, low)
+     */
+    private static UnsignedBigInt valueOf(long high, long low) {
+        if(high == 0) {
+            return new UnsignedBigInt(low);
+        }
+        return valueOf(new BitArray(new long[] {low, high}));
+    }
+
+    /**
+     * Returns the BitArray holding the bits of this UnsignedBigInt. Values kept in a single
+     * word get a new BitArray on every call.
+     * @return BitArray of this UnsignedBigInt
+     */
+    BitArray bits() {
+        return bits != null ? bits : new BitArray(small);
+    }
+    
+    /**
+     * Returns true, if the value is kept in small rather than in a BitArray
+     */
+    private boolean isSmall() {
+        return bits == null;
+    }
+    
+    /**
+     * Returns the limbs of this UnsignedBigInt, least significant limb first
+     */
+    private long[] words() {
+        return bits != null ? bits.words() : new long[] {small};
+    }
+    
+    /**
+     * Returns the limbs of this UnsignedBigInt without allocating, null for values kept in
+     * a single word, which longValue returns instead. The array must not be modified.
+     */
+    long[] limbs() {
+        return bits != null ? bits.words() : null;
+    }
+    
+    /**
+     * Returns the number of significant limbs of this UnsignedBigInt
+     */
+    int wordLength() {
+        return bits != null ? bits.wordLength() : (small != 0 ? 1 : 0);
+    }
+    
+    /**
+     * Returns the bit length of the longer of this UnsignedBigInt and b
+     */
+    private int maxBitLength(UnsignedBigInt b) {
+        return Math.max(bitLength(), b.bitLength());
     }
 
     /**
@@ -70,21 +212,33 @@ public class UnsignedBigInt {
      * @return UnsignedBigInt whose value is (this + b)
      */
     public UnsignedBigInt add(UnsignedBigInt b) {
-        UnsignedBigInt result = new UnsignedBigInt();
-        
-        int carry = 0;
-        int max = Math.max(this.bits.length(), b.bits.length());
-        for(int i = 0; i <= max; i++) {
-            int s = this.bits.getBit(i) + b.bits.getBit(i) + carry;
-            carry = 0;
-            if(s >= 2) {
-                carry = 1;
-                s -= 2;
-            }
-            result.bits.setBit(i, s);
+        if(isSmall() && b.isSmall()) {
+            long sum = small + b.small;
+            return valueOf(LimbMath.unsignedLess(sum, small) ? 1 : 0, sum);
         }
-        
-        return result;
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] sum = LimbMath.add(words(), wordLength(), b.words(), b.wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.ADD, maxBitLength(b), start, sum.length);
+        }
+        return valueOf(new BitArray(sum));
+    }
+    
+    /**
+     * Adds the unsigned long integer b to this UnsignedBigInt and returns the sum
+     * @param b long integer containing addend b, read as an unsigned value
+     * @return UnsignedBigInt whose value is (this + b)
+     */
+    public UnsignedBigInt add(long b) {
+        if(isSmall()) {
+            long sum = small + b;
+            return valueOf(LimbMath.unsignedLess(sum, small) ? 1 : 0, sum);
+        }
+        int len = wordLength();
+        long[] sum = new long[len + 1];
+        sum[len] = LimbMath.addWord(words(), len, b, sum);
+        return valueOf(new BitArray(sum));
     }
     
     /**
@@ -94,15 +248,28 @@ public class UnsignedBigInt {
      * @return true, if this UnsignedBigInt is bigger than the UnsignedBigInt b, false otherwise
      */
     public boolean biggerThan(UnsignedBigInt b) {
-        for(int i = Math.max(this.bits.length(), b.bits.length()); i >= 0; i--) {
-            if(this.bits.getBit(i) > b.bits.getBit(i)) {
-                return true;
+        return compareTo(b) > 0;
+    }
+    
+    /**
+     * Compares this UnsignedBigInt with the UnsignedBigInt b. The limb counts are compared
+     * first, equally long values limb by limb from the most significant limb.
+     * @param b UnsignedBigInt this UnsignedBigInt will be compared to
+     * @return -1, 0 or 1 as this UnsignedBigInt is smaller than, equal to or bigger than b
+     */
+    @Override
+    public int compareTo(UnsignedBigInt b) {
+        if(isSmall() || b.isSmall()) {
+            // a value kept in a BitArray has at least two limbs
+            if(!b.isSmall()) {
+                return -1;
             }
-            if(this.bits.getBit(i) < b.bits.getBit(i)) {
-                return false;
+            if(!isSmall()) {
+                return 1;
             }
+            return small == b.small ? 0 : (LimbMath.unsignedLess(small, b.small) ? -1 : 1);
         }
-        return false;
+        return LimbMath.compare(words(), wordLength(), b.words(), b.wordLength());
     }
     
     /**
@@ -113,19 +280,33 @@ public class UnsignedBigInt {
      */
     @Override
     public boolean equals(Object b) {
+        if(b == this) {
+            return true;
+        }
         if(b == null || !(b instanceof UnsignedBigInt)) {
             return false;
         }
-
-        for(int i = Math.max(this.bits.length(), ((UnsignedBigInt)b).bits.length()); i >= 0; i--) {
-            if(this.bits.getBit(i) > ((UnsignedBigInt)b).bits.getBit(i)) {
-                return false;
-            }
-            if(this.bits.getBit(i) < ((UnsignedBigInt)b).bits.getBit(i)) {
-                return false;
+        return compareTo((UnsignedBigInt)b) == 0;
+    }
+    
+    /**
+     * Returns a hash code computed from the significant limbs of this UnsignedBigInt,
+     * equal UnsignedBigInts having equal hash codes. The value is cached after the first call.
+     * @return hash code of this UnsignedBigInt
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if(h == 0 && isSmall()) {
+            h = (int)(small ^ (small >>> 32));
+        } else if(h == 0) {
+            long[] words = words();
+            for(int i = wordLength() - 1; i >= 0; i--) {
+                h = 31 * h + (int)(words[i] ^ (words[i] >>> 32));
             }
+            hash = h;
         }
-        return true;
+        return h;
     }
     
     /**
@@ -142,32 +323,177 @@ public class UnsignedBigInt {
      * Divides this UnsignedBigInt with the UnsignedBigInt b returning the quotient and the remainder
      * @param b UnsignedBigInt containing divisor b
      * @return An UnsignedBigInt array containing the quotient (index 0) and the remainder (index 1)
+     * @throws ArithmeticException if b is zero
      */
     public UnsignedBigInt[] divideAndRemainder(UnsignedBigInt b) {
+        int ylen = b.wordLength();
+        if(ylen == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if(isSmall() && b.isSmall()) {
+            long q = LimbMath.divideUnsigned(small, b.small);
+            return new UnsignedBigInt[] {new UnsignedBigInt(q), new UnsignedBigInt(small - q * b.small)};
+        }
+        if(isSmall()) {
+            return new UnsignedBigInt[] {new UnsignedBigInt(), new UnsignedBigInt(small)};
+        }
+        
         // quotient is in result[0]
         // remainder is in result[1]
-        UnsignedBigInt result[] = new UnsignedBigInt[2];
-        result[0] = new UnsignedBigInt();
-        result[1] = new UnsignedBigInt();
-        
-        for(int i = this.bits.length() - 1; i >= 0; i--) {
-            result[1].bits.shiftLeft();
-            result[1].bits.setBit(0, this.bits.getBit(i));
-            if(result[1].biggerThan(b) || result[1].equals(b)) {
-                result[1] = result[1].subtract(b);
-                result[0].bits.setBit(i, 1);
-            }
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        UnsignedBigInt result[];
+        int xlen = wordLength();
+        if(ylen >= NEWTON_DIVISION_THRESHOLD && xlen - ylen >= NEWTON_DIVISION_THRESHOLD) {
+            result = Newton.divideAndRemainder(this, b);
+        } else {
+            long[][] qr = LimbMath.divideAndRemainder(words(), xlen, b.words(), ylen);
+            result = new UnsignedBigInt[2];
+            result[0] = valueOf(new BitArray(qr[0]));
+            result[1] = valueOf(new BitArray(qr[1]));
+        }
+        if(timed) {
+            Metrics.record(Metrics.Operation.DIVIDE, maxBitLength(b), start, result[0].wordLength() + result[1].wordLength());
         }
         
         return result;
     }
     
+    /**
+     * Divides this UnsignedBigInt with the unsigned long integer d returning the quotient and
+     * the remainder in a single pass over the limbs
+     * @param d long integer containing divisor d, read as an unsigned value
+     * @return An UnsignedBigInt array containing the quotient (index 0) and the remainder (index 1)
+     * @throws ArithmeticException if d is zero
+     */
+    public UnsignedBigInt[] divideAndRemainder(long d) {
+        if(d == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if(isSmall()) {
+            long q = LimbMath.divideUnsigned(small, d);
+            return new UnsignedBigInt[] {new UnsignedBigInt(q), new UnsignedBigInt(small - q * d)};
+        }
+        int len = wordLength();
+        long[] q = new long[len];
+        long r = LimbMath.divideByWord(words(), len, d, q);
+        return new UnsignedBigInt[] {valueOf(new BitArray(q)), new UnsignedBigInt(r)};
+    }
+    
+    /**
+     * Divides this UnsignedBigInt with the unsigned long integer d and returns the remainder
+     * without computing the quotient
+     * @param d long integer containing divisor d, read as an unsigned value
+     * @return unsigned long integer whose value is (this mod d)
+     * @throws ArithmeticException if d is zero
+     */
+    public long mod(long d) {
+        if(d == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if(isSmall()) {
+            return small - LimbMath.divideUnsigned(small, d) * d;
+        }
+        return LimbMath.divideByWord(words(), wordLength(), d, null);
+    }
+    
     /**
      * Returns the long integer representing this UnsignedBigInt, if possible
      * @return long integer containing the value of this UnsignedBigInt
      */
     public long longValue() {
-        return this.bits.toLong();
+        return isSmall() ? small : this.bits.toLong();
+    }
+    
+    /**
+     * Returns the big-endian binary representation of this UnsignedBigInt in the fewest
+     * bytes possible, the most significant byte first
+     * @return array of byteLength() bytes, empty if this UnsignedBigInt is zero
+     */
+    public byte[] toByteArray() {
+        byte[] b = new byte[byteLength()];
+        write(ByteBuffer.wrap(b));
+        return b;
+    }
+    
+    /**
+     * Creates a new UnsignedBigInt from its big-endian binary representation
+     * @param b array of bytes, the most significant byte first
+     * @return UnsignedBigInt whose value is given by the bytes of b
+     */
+    public static UnsignedBigInt fromByteArray(byte[] b) {
+        return read(ByteBuffer.wrap(b), b.length);
+    }
+    
+    /**
+     * Writes the byteLength() bytes of this UnsignedBigInt to the buffer at its position in
+     * the byte order of the buffer: the most significant byte first for a big-endian buffer
+     * and the least significant byte first for a little-endian one. Whole limbs are copied
+     * with a single write each.
+     * @param buf ByteBuffer to write to
+     * @throws BufferOverflowException if fewer than byteLength() bytes remain in buf
+     */
+    public void write(ByteBuffer buf) {
+        int n = byteLength();
+        if(buf.remaining() < n) {
+            throw new BufferOverflowException();
+        }
+        long[] words = words();
+        int full = n >>> 3;
+        int rest = n & 7;
+        long top = rest != 0 ? words[full] : 0;
+        if(buf.order() == ByteOrder.BIG_ENDIAN) {
+            for(int i = rest - 1; i >= 0; i--) {
+                buf.put((byte)(top >>> (8 * i)));
+            }
+            for(int i = full - 1; i >= 0; i--) {
+                buf.putLong(words[i]);
+            }
+        } else {
+            buf.asLongBuffer().put(words, 0, full);
+            buf.position(buf.position() + 8 * full);
+            for(int i = 0; i < rest; i++) {
+                buf.put((byte)(top >>> (8 * i)));
+            }
+        }
+    }
+    
+    /**
+     * Reads an UnsignedBigInt of n bytes from the buffer at its position in the byte order
+     * of the buffer, as written by write
+     * @param buf ByteBuffer to read from
+     * @param n number of bytes to read
+     * @return UnsignedBigInt whose value is given by the n bytes read
+     * @throws BufferUnderflowException if fewer than n bytes remain in buf
+     * @throws IllegalArgumentException if n is negative
+     */
+    public static UnsignedBigInt read(ByteBuffer buf, int n) {
+        if(n < 0) {
+            throw new IllegalArgumentException("Negative length");
+        }
+        if(buf.remaining() < n) {
+            throw new BufferUnderflowException();
+        }
+        int full = n >>> 3;
+        int rest = n & 7;
+        long[] words = new long[full + 1];
+        long top = 0;
+        if(buf.order() == ByteOrder.BIG_ENDIAN) {
+            for(int i = 0; i < rest; i++) {
+                top = (top << 8) | (buf.get() & 0xffL);
+            }
+            for(int i = full - 1; i >= 0; i--) {
+                words[i] = buf.getLong();
+            }
+        } else {
+            buf.asLongBuffer().get(words, 0, full);
+            buf.position(buf.position() + 8 * full);
+            for(int i = 0; i < rest; i++) {
+                top |= (buf.get() & 0xffL) << (8 * i);
+            }
+        }
+        words[full] = top;
+        return valueOf(new BitArray(words));
     }
     
     /**
@@ -182,99 +508,439 @@ public class UnsignedBigInt {
     
     /**
      * Calculates the remainder when this UnsignedBigInt is raised to the power represented
-     * by the UnsignedBigInt e and divided by the UnsignedBigInt m
+     * by the UnsignedBigInt e and divided by the UnsignedBigInt m. Use a ModContext
+     * directly when exponentiating repeatedly with the same modulus.
      * @param e UnsignedBigInt containing exponent e
      * @param m UnsignedBigInt containing modulus m
      * @return UnsignedBigInt whose value is (this^e mod m)
+     * @throws ArithmeticException if m is zero
      */
     public UnsignedBigInt modPow(UnsignedBigInt e, UnsignedBigInt m) {
-        UnsignedBigInt b = new UnsignedBigInt(this);
-        UnsignedBigInt exp = new UnsignedBigInt(e);
-        UnsignedBigInt result = new UnsignedBigInt(UnsignedBigInt.ONE);
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        UnsignedBigInt result = new ModContext(m).modPow(this, e);
+        if(timed) {
+            Metrics.record(Metrics.Operation.MOD_POW, Math.max(maxBitLength(m), e.bitLength()), start, result.wordLength());
+        }
+        return result;
+    }
 
-        while(exp.biggerThan(UnsignedBigInt.ZERO)) {
-            UnsignedBigInt mod = exp.mod(UnsignedBigInt.TWO);
-            if(mod.equals(UnsignedBigInt.ONE)) {
-                result = result.multiply(b).mod(m);
+    /**
+     * Raises every base to the exponent at the same position modulo the UnsignedBigInt m,
+     * spreading the exponentiations over all processors
+     * @param bases list of UnsignedBigInts containing the bases
+     * @param exponents list of UnsignedBigInts containing the exponents
+     * @param m UnsignedBigInt containing modulus m
+     * @return list of UnsignedBigInts whose values are (bases[i]^exponents[i] mod m)
+     * @throws ArithmeticException if m is zero
+     * @throws IllegalArgumentException if the lists differ in size
+     */
+    public static List<UnsignedBigInt> modPowAll(List<UnsignedBigInt> bases, List<UnsignedBigInt> exponents, UnsignedBigInt m) {
+        return new ModContext(m).modPowAll(bases, exponents);
+    }
+
+    /**
+     * Returns the greatest common divisor of this UnsignedBigInt and the UnsignedBigInt b,
+     * computed with the binary GCD algorithm
+     * @param b UnsignedBigInt b
+     * @return UnsignedBigInt whose value is gcd(this, b), zero if both are zero
+     */
+    public UnsignedBigInt gcd(UnsignedBigInt b) {
+        if(isSmall() && b.isSmall()) {
+            long u = small;
+            long v = b.small;
+            if(u == 0 || v == 0) {
+                return new UnsignedBigInt(u | v);
             }
-            exp.bits.shiftRight();
-            b = b.multiply(b).mod(m);
+            int k = Long.numberOfTrailingZeros(u | v);
+            u >>>= Long.numberOfTrailingZeros(u);
+            v >>>= Long.numberOfTrailingZeros(v);
+            while(u != v) {
+                if(LimbMath.unsignedLess(u, v)) {
+                    long t = u;
+                    u = v;
+                    v = t;
+                }
+                u -= v;
+                u >>>= Long.numberOfTrailingZeros(u);
+            }
+            return valueOf(k > 0 ? u >>> (64 - k) : 0, u << k);
         }
-        return result;
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] gcd = Gcd.gcd(words(), wordLength(), b.words(), b.wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.GCD, maxBitLength(b), start, gcd.length);
+        }
+        return valueOf(new BitArray(gcd));
     }
 
-    public UnsignedBigInt karatsuba(UnsignedBigInt b) {
-        int m = (int)Math.ceil(Math.min(this.bits.length(), b.bits.length()) / 2.0);
-        
-        if(m < 512) {
-            return this.multiply(b);
+    /**
+     * Returns the inverse of this UnsignedBigInt modulo the UnsignedBigInt m, computed with
+     * the binary extended Euclidean algorithm
+     * @param m UnsignedBigInt containing modulus m
+     * @return UnsignedBigInt x below m such that (this * x mod m) is one
+     * @throws ArithmeticException if m is zero or this UnsignedBigInt is not invertible modulo m
+     */
+    public UnsignedBigInt modInverse(UnsignedBigInt m) {
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] inverse = Gcd.modInverse(words(), wordLength(), m.words(), m.wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.MOD_INVERSE, maxBitLength(m), start, inverse.length);
         }
-        
-        // TODO: calculate B^m with left shifts instead of multiplications
-        UnsignedBigInt base = UnsignedBigInt.TWO.pow(new UnsignedBigInt(m));
-        UnsignedBigInt base2 = base.pow(UnsignedBigInt.TWO);
+        return valueOf(new BitArray(inverse));
+    }
+
+    /**
+     * Returns true, if this UnsignedBigInt is probably prime. Small factors are found by
+     * trial division, after which rounds Miller-Rabin tests with random bases are run.
+     * @param rounds number of Miller-Rabin rounds, a composite passing each with a
+     * probability of at most 1/4
+     * @return false, if this UnsignedBigInt is composite, true if it is probably prime
+     */
+    public boolean isProbablePrime(int rounds) {
+        return Primes.isProbablePrime(this, rounds);
+    }
 
-        UnsignedBigInt[] x = this.divideAndRemainder(base);
-        UnsignedBigInt[] y = b.divideAndRemainder(base);
+    /**
+     * Returns a random probable prime of exactly the given bit length, found with an
+     * incremental small-prime sieve. Candidates get enough Miller-Rabin rounds for the
+     * bounds of Damgard, Landrock and Pomerance on random candidates to put the probability
+     * that a composite is returned below 2^-100.
+     * @param bits bit length of the prime, at least 2
+     * @param rnd source of randomness for the candidates
+     * @return UnsignedBigInt containing a probable prime of bits bits
+     * @throws ArithmeticException if bits is smaller than 2
+     */
+    public static UnsignedBigInt probablePrime(int bits, Random rnd) {
+        return Primes.probablePrime(bits, rnd, false);
+    }
 
-        UnsignedBigInt z0 = x[1].karatsuba(y[1]);
-        UnsignedBigInt z2 = x[0].karatsuba(y[0]);
-        UnsignedBigInt z1 = ((x[0].add(x[1])).karatsuba(y[0].add(y[1]))).subtract(z2).subtract(z0);        
+    /**
+     * Returns a random probable prime of exactly the given bit length as probablePrime does,
+     * optionally testing several candidates at once on all processors
+     * @param bits bit length of the prime, at least 2
+     * @param rnd source of randomness for the candidates
+     * @param parallel true, if candidates are tested in parallel
+     * @return UnsignedBigInt containing a probable prime of bits bits
+     * @throws ArithmeticException if bits is smaller than 2
+     */
+    public static UnsignedBigInt probablePrime(int bits, Random rnd, boolean parallel) {
+        return Primes.probablePrime(bits, rnd, parallel);
+    }
 
-        z2 = z2.multiply(base2);
-        z1 = z1.multiply(base);
-        
-        return z0.add(z1.add(z2));
+    /**
+     * Multiplies this UnsignedBigInt with the UnsignedBigInt b using Karatsuba multiplication
+     * at the top level regardless of KARATSUBA_THRESHOLD. The sub-products are computed
+     * with multiply.
+     * @param b UnsignedBigInt containing multiplier b
+     * @return UnsignedBigInt whose value is (this * b)
+     */
+    public UnsignedBigInt karatsuba(UnsignedBigInt b) {
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] product = LimbMath.multiplyKaratsuba(words(), 0, wordLength(), b.words(), 0, b.wordLength(), 0);
+        if(timed) {
+            Metrics.record(Metrics.Operation.KARATSUBA, maxBitLength(b), start, product.length);
+        }
+        return valueOf(new BitArray(product));
     }
     
     /**
-     * Multiplies this UnsignedBigInt with the UnsignedBigInt b and returns the product
+     * Multiplies this UnsignedBigInt with the UnsignedBigInt b and returns the product.
+     * The algorithm is chosen by the length of the shorter operand: schoolbook, Karatsuba from
+     * KARATSUBA_THRESHOLD words, Toom-Cook 3-way from TOOM_COOK_THRESHOLD words and
+     * number-theoretic transforms from NTT_THRESHOLD words upward.
      * @param b UnsignedBigInt containing multiplier b
      * @return UnsignedBigInt whose value is (this * b)
      */
     public UnsignedBigInt multiply(UnsignedBigInt b) {
-        UnsignedBigInt result = new UnsignedBigInt();
-
-        UnsignedBigInt temp;
-        for(int i = 0; i < b.bits.length(); i++) {
-            if(b.bits.getBit(i) > 0) {
-                temp = new UnsignedBigInt(this);
-                for(int j = 0; j < i; j++) {
-                    if(i - j > 64) {
-                        temp.bits.shiftLeft64();
-                        j += 63;
-                    } else {
-                        temp.bits.shiftLeft();
-                    }
-                }
-                result = result.add(temp);
-            }
+        if(isSmall() && b.isSmall()) {
+            return valueOf(LimbMath.multiplyHigh(small, b.small), small * b.small);
         }
-        
-        return result;
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] product = LimbMath.multiply(words(), wordLength(), b.words(), b.wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.MULTIPLY, maxBitLength(b), start, product.length);
+        }
+        return valueOf(new BitArray(product));
+    }
+    
+    /**
+     * Multiplies this UnsignedBigInt with the unsigned long integer b in a single pass over
+     * the limbs and returns the product
+     * @param b long integer containing multiplier b, read as an unsigned value
+     * @return UnsignedBigInt whose value is (this * b)
+     */
+    public UnsignedBigInt multiply(long b) {
+        if(isSmall()) {
+            return valueOf(LimbMath.multiplyHigh(small, b), small * b);
+        }
+        int len = wordLength();
+        long[] product = new long[len + 1];
+        product[len] = LimbMath.multiplyByWord(words(), len, b, 0, product);
+        return valueOf(new BitArray(product));
     }
     
     /**
-     * Raises this UnsignedBigInt to the power represented by the UnsignedBigInt e
+     * Multiplies this UnsignedBigInt with the UnsignedBigInt b using all available processors.
+     * While the shorter operand has at least PARALLEL_THRESHOLD words, the operands are split
+     * with Toom-Cook or Karatsuba multiplication and the sub-products computed in parallel;
+     * smaller products are computed as in multiply.
+     * @param b UnsignedBigInt containing multiplier b
+     * @return UnsignedBigInt whose value is (this * b)
+     */
+    public UnsignedBigInt parallelMultiply(UnsignedBigInt b) {
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] product = LimbMath.multiply(words(), 0, wordLength(), b.words(), 0, b.wordLength(), ParallelMultiplication.depth());
+        if(timed) {
+            Metrics.record(Metrics.Operation.PARALLEL_MULTIPLY, maxBitLength(b), start, product.length);
+        }
+        return valueOf(new BitArray(product));
+    }
+    
+    /**
+     * Squares this UnsignedBigInt. Every cross product is computed only once, which is
+     * faster than a general multiplication; multiply squares automatically when both
+     * operands are the same instance.
+     * @return UnsignedBigInt whose value is (this * this)
+     */
+    public UnsignedBigInt square() {
+        if(isSmall()) {
+            return valueOf(LimbMath.multiplyHigh(small, small), small * small);
+        }
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] square = LimbMath.square(words(), wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.SQUARE, bitLength(), start, square.length);
+        }
+        return valueOf(new BitArray(square));
+    }
+    
+    /**
+     * Raises this UnsignedBigInt to the power represented by the UnsignedBigInt e using
+     * left-to-right binary exponentiation
      * @param e UnsignedBigInt containing the exponent e
      * @return UnsignedBigInt whose value is (this^e)
      */
     public UnsignedBigInt pow(UnsignedBigInt e) {
-        UnsignedBigInt b = new UnsignedBigInt(this);
-        UnsignedBigInt result = new UnsignedBigInt(UnsignedBigInt.ONE);
-
-        while(e.biggerThan(UnsignedBigInt.ZERO)) {
-            if(e.bits.getBit(0) > 0) {
-                result = result.multiply(b);
-                e.bits.setBit(0, 0);
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        BitArray exponent = e.bits();
+        UnsignedBigInt result = UnsignedBigInt.ONE;
+        for(int i = exponent.length() - 1; i >= 0; i--) {
+            result = result.square();
+            if(exponent.getBit(i) == 1) {
+                result = result.multiply(this);
             }
-            b = b.multiply(b);
-            e.bits.shiftRight();
         }
-
+        if(timed) {
+            Metrics.record(Metrics.Operation.POW, maxBitLength(e), start, result.wordLength());
+        }
         return result;
     }
     
+    /**
+     * Returns the integer square root of this UnsignedBigInt, computed by Newton iteration
+     * with doubling precision
+     * @return UnsignedBigInt whose value is floor(sqrt(this))
+     */
+    public UnsignedBigInt sqrt() {
+        return Newton.root(this, 2);
+    }
+    
+    /**
+     * Returns the integer nth root of this UnsignedBigInt, computed by Newton iteration
+     * with doubling precision
+     * @param n degree of the root
+     * @return UnsignedBigInt whose value is floor(this^(1 / n))
+     * @throws ArithmeticException if n is not positive
+     */
+    public UnsignedBigInt nthRoot(int n) {
+        if(n <= 0) {
+            throw new ArithmeticException("Non-positive root degree");
+        }
+        return Newton.root(this, n);
+    }
+    
+    /**
+     * Shifts this UnsignedBigInt left by n bits and returns the result
+     * @param n non-negative number of bits to shift
+     * @return UnsignedBigInt whose value is (this * 2^n)
+     * @throws ArithmeticException if n is negative
+     */
+    public UnsignedBigInt shiftLeft(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative shift distance");
+        }
+        int len = wordLength();
+        if(len == 0) {
+            return new UnsignedBigInt();
+        }
+        if(isSmall() && n < 64) {
+            return valueOf(n > 0 ? small >>> (64 - n) : 0, small << n);
+        }
+        int words = n >>> 6;
+        long[] shifted = new long[len + words + 1];
+        shifted[len + words] = LimbMath.shiftLeft(words(), len, n & 63, shifted, words);
+        return valueOf(new BitArray(shifted));
+    }
+    
+    /**
+     * Shifts this UnsignedBigInt right by n bits and returns the result
+     * @param n non-negative number of bits to shift
+     * @return UnsignedBigInt whose value is floor(this / 2^n)
+     * @throws ArithmeticException if n is negative
+     */
+    public UnsignedBigInt shiftRight(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative shift distance");
+        }
+        if(isSmall()) {
+            return new UnsignedBigInt(n < 64 ? small >>> n : 0);
+        }
+        int len = wordLength();
+        int words = n >>> 6;
+        if(words >= len) {
+            return new UnsignedBigInt();
+        }
+        long[] shifted = new long[len - words];
+        LimbMath.shiftRight(words(), words, len - words, n & 63, shifted);
+        return valueOf(new BitArray(shifted));
+    }
+    
+    /**
+     * Returns the bitwise AND of this UnsignedBigInt and the UnsignedBigInt b
+     * @param b UnsignedBigInt to AND with
+     * @return UnsignedBigInt whose value is (this & b)
+     */
+    public UnsignedBigInt and(UnsignedBigInt b) {
+        if(isSmall() || b.isSmall()) {
+            return new UnsignedBigInt(longValue() & b.longValue());
+        }
+        boolean shorter = wordLength() <= b.wordLength();
+        BitArray result = new BitArray(shorter ? this.bits : b.bits);
+        result.and(shorter ? b.bits : this.bits);
+        return valueOf(result);
+    }
+    
+    /**
+     * Returns the bitwise OR of this UnsignedBigInt and the UnsignedBigInt b
+     * @param b UnsignedBigInt to OR with
+     * @return UnsignedBigInt whose value is (this | b)
+     */
+    public UnsignedBigInt or(UnsignedBigInt b) {
+        if(isSmall() && b.isSmall()) {
+            return new UnsignedBigInt(small | b.small);
+        }
+        boolean longer = wordLength() >= b.wordLength();
+        BitArray result = new BitArray(longer ? this.bits : b.bits);
+        result.or(longer ? b.bits() : this.bits());
+        return valueOf(result);
+    }
+    
+    /**
+     * Returns the bitwise XOR of this UnsignedBigInt and the UnsignedBigInt b
+     * @param b UnsignedBigInt to XOR with
+     * @return UnsignedBigInt whose value is (this ^ b)
+     */
+    public UnsignedBigInt xor(UnsignedBigInt b) {
+        if(isSmall() && b.isSmall()) {
+            return new UnsignedBigInt(small ^ b.small);
+        }
+        boolean longer = wordLength() >= b.wordLength();
+        BitArray result = new BitArray(longer ? this.bits : b.bits);
+        result.xor(longer ? b.bits() : this.bits());
+        return valueOf(result);
+    }
+    
+    /**
+     * Returns this UnsignedBigInt with every bit cleared that is set in the UnsignedBigInt b
+     * @param b UnsignedBigInt whose set bits are cleared
+     * @return UnsignedBigInt whose value is (this & ~b)
+     */
+    public UnsignedBigInt andNot(UnsignedBigInt b) {
+        if(isSmall()) {
+            return new UnsignedBigInt(small & ~b.longValue());
+        }
+        BitArray result = new BitArray(this.bits);
+        result.andNot(b.bits());
+        return valueOf(result);
+    }
+    
+    /**
+     * Returns true, if bit n of this UnsignedBigInt is set
+     * @param n non-negative index of the bit
+     * @return true, if bit n is one, false otherwise
+     * @throws ArithmeticException if n is negative
+     */
+    public boolean testBit(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative bit address");
+        }
+        if(isSmall()) {
+            return n < 64 && (small & (1L << n)) != 0;
+        }
+        return this.bits.getBit(n) == 1;
+    }
+    
+    /**
+     * Returns this UnsignedBigInt with bit n flipped
+     * @param n non-negative index of the bit
+     * @return UnsignedBigInt whose value is (this ^ 2^n)
+     * @throws ArithmeticException if n is negative
+     */
+    public UnsignedBigInt flipBit(int n) {
+        if(n < 0) {
+            throw new ArithmeticException("Negative bit address");
+        }
+        if(isSmall() && n < 64) {
+            return new UnsignedBigInt(small ^ (1L << n));
+        }
+        BitArray result = new BitArray(bits());
+        result.flipBit(n);
+        return valueOf(result);
+    }
+    
+    /**
+     * Returns the number of bits up to and including the most significant set bit
+     * @return bit length of this UnsignedBigInt, zero if it is zero
+     */
+    public int bitLength() {
+        return isSmall() ? 64 - Long.numberOfLeadingZeros(small) : this.bits.length();
+    }
+    
+    /**
+     * Returns the number of bytes up to and including the most significant non-zero byte
+     * @return length of the binary representation of this UnsignedBigInt in bytes
+     */
+    public int byteLength() {
+        return (bitLength() + 7) >>> 3;
+    }
+    
+    /**
+     * Returns the number of set bits in this UnsignedBigInt
+     * @return number of one bits
+     */
+    public int bitCount() {
+        return isSmall() ? Long.bitCount(small) : this.bits.bitCount();
+    }
+    
+    /**
+     * Returns the index of the least significant set bit in this UnsignedBigInt
+     * @return index of the lowest one bit, -1 if this UnsignedBigInt is zero
+     */
+    public int getLowestSetBit() {
+        if(isSmall()) {
+            return small != 0 ? Long.numberOfTrailingZeros(small) : -1;
+        }
+        return this.bits.getLowestSetBit();
+    }
+    
     /**
      * Compares the two UnsignedBigInts and returns true if this UnsignedBigInt is smaller
      * than the parameter b given, false otherwise
@@ -282,15 +948,7 @@ public class UnsignedBigInt {
      * @return true, if this UnsignedBigInt is smaller than the UnsignedBigInt b, false otherwise
      */
     public boolean smallerThan(UnsignedBigInt b) {
-        for(int i = Math.max(this.bits.length(), b.bits.length()); i >= 0; i--) {
-            if(this.bits.getBit(i) > b.bits.getBit(i)) {
-                return false;
-            }
-            if(this.bits.getBit(i) < b.bits.getBit(i)) {
-                return true;
-            }
-        }
-        return false;
+        return compareTo(b) < 0;
     }
     
     /**
@@ -298,23 +956,32 @@ public class UnsignedBigInt {
      * Difference must be non-negative i.e. this >= b.
      * @param b UnsignedBigInt containing subtrahend b
      * @return UnsignedBigInt whose value is (this - b)
+     * @throws ArithmeticException if b is bigger than this UnsignedBigInt
      */
     public UnsignedBigInt subtract(UnsignedBigInt b) {
-        UnsignedBigInt result = new UnsignedBigInt();
-
-        int borrow = 0;
-        int max = Math.max(this.bits.length(), b.bits.length());
-        for(int i = 0; i <= max; i++) {
-            int s = this.bits.getBit(i) - b.bits.getBit(i) + borrow;
-            borrow = 0;
-            if(s < 0) {
-                borrow = -1;
-                s += 2;
+        if(isSmall() && b.isSmall()) {
+            if(LimbMath.unsignedLess(small, b.small)) {
+                throw new ArithmeticException("Difference is negative");
             }
-            result.bits.setBit(i, s);
+            return new UnsignedBigInt(small - b.small);
+        }
+        int xlen = wordLength();
+        int ylen = b.wordLength();
+        if(xlen < ylen) {
+            throw new ArithmeticException("Difference is negative");
         }
         
-        return result;
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        long[] difference = new long[xlen];
+        long borrow = LimbMath.subtract(words(), xlen, b.words(), ylen, difference);
+        if(borrow != 0) {
+            throw new ArithmeticException("Difference is negative");
+        }
+        if(timed) {
+            Metrics.record(Metrics.Operation.SUBTRACT, maxBitLength(b), start, xlen);
+        }
+        return valueOf(new BitArray(difference));
     }
     
     /**
@@ -322,24 +989,17 @@ public class UnsignedBigInt {
      * @return base10 string representation of this UnsignedBigInt
      */
     @Override
-    public String toString() {              
-        StringBuilder sb = new StringBuilder();
-        
-        UnsignedBigInt result[] = new UnsignedBigInt[2];
-        result[0] = new UnsignedBigInt(this);
-        
-        do {
-            result = result[0].divideAndRemainder(UnsignedBigInt.TEN);
-            int n = 0;
-            for(int i = 0; i < 4; i++) {
-                if(result[1].bits.getBit(i) > 0) {
-                    n += Math.pow(2, i);
-                }
-            }
-            sb.append(n);
-        } while(result[0].biggerThan(UnsignedBigInt.ZERO));
-
-        return sb.reverse().toString();
+    public String toString() {
+        if(isSmall() && small >= 0) {
+            return Long.toString(small);
+        }
+        boolean timed = Metrics.enabled;
+        long start = timed ? System.nanoTime() : 0;
+        String s = DecimalConversion.toString(words(), wordLength());
+        if(timed) {
+            Metrics.record(Metrics.Operation.TO_STRING, bitLength(), start, 0);
+        }
+        return s;
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package bignum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Shared pool of daemon threads for the parallel operations of this package. A thread
+ * waiting for a task that no worker has started yet computes it itself, so nested parallel
+ * operations cannot deadlock the fixed-size pool.
+ */
+final class Workers {
+
+    private Workers() {
+    }
+
+    /**
+     * Returns the number of threads in the pool
+     */
+    static int parallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Computes the given tasks in parallel, the first one on the calling thread
+     * @return list containing the result of each task, in the order given
+     */
+    static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if(tasks.isEmpty()) {
+            return results;
+        }
+
+        List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>(tasks.size());
+        for(int i = 1; i < tasks.size(); i++) {
+            FutureTask<T> task = new FutureTask<T>(tasks.get(i));
+            futures.add(task);
+            Pool.EXECUTOR.execute(task);
+        }
+        try {
+            results.add(tasks.get(0).call());
+        } catch(RuntimeException e) {
+            throw e;
+        } catch(Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        for(FutureTask<T> task : futures) {
+            // runs the task here unless a worker has already started it
+            task.run();
+            try {
+                results.add(task.get());
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a task", e);
+            } catch(ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                }
+                if(cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Lazily created pool with one daemon thread per processor
+     */
+    private static final class Pool {
+
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(parallelism(), new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "bignum-worker-" + count++);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+}
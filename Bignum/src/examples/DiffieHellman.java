@@ -1,7 +1,7 @@
 package examples;
 
+import bignum.FixedBaseExponentiator;
 import bignum.UnsignedBigInt;
-import java.math.BigInteger;
 import java.security.SecureRandom;
 
 public class DiffieHellman {
@@ -10,16 +10,17 @@ public class DiffieHellman {
 
         SecureRandom random = new SecureRandom();
         
-        UnsignedBigInt p = new UnsignedBigInt(BigInteger.probablePrime(256, random).toString());
+        UnsignedBigInt p = UnsignedBigInt.probablePrime(256, random);
         UnsignedBigInt g = new UnsignedBigInt("2");
         
-        UnsignedBigInt a = new UnsignedBigInt(BigInteger.probablePrime(128, random).toString());
-        UnsignedBigInt b = new UnsignedBigInt(BigInteger.probablePrime(128, random).toString());
+        UnsignedBigInt a = UnsignedBigInt.probablePrime(128, random);
+        UnsignedBigInt b = UnsignedBigInt.probablePrime(128, random);
         
         System.out.println("Alice's secret is: " + a + ", Bob's secret is: " + b);
         
-        UnsignedBigInt A = g.modPow(a, p);
-        UnsignedBigInt B = g.modPow(b, p);
+        FixedBaseExponentiator generator = new FixedBaseExponentiator(g, p, 128);
+        UnsignedBigInt A = generator.modPow(a);
+        UnsignedBigInt B = generator.modPow(b);
         
         System.out.println("A: " + A);
         System.out.println("B: " + B);
@@ -0,0 +1,178 @@
+package bignum;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    private Random r;
+    private List<UnsignedBigInt> values;
+
+    @Before
+    public void setUp() {
+        r = new Random();
+        values = new ArrayList<UnsignedBigInt>();
+        values.add(UnsignedBigInt.ZERO);
+        values.add(new UnsignedBigInt(255));
+        values.add(new UnsignedBigInt(-1L));
+        for(int i = 0; i < 50; i++) {
+            values.add(new UnsignedBigInt(new BigInteger(r.nextInt(4096), r).toString()));
+        }
+    }
+
+    @Test
+    public void testToByteArray() {
+        assertArrayEquals(UnsignedBigInt.ZERO.toByteArray(), new byte[0]);
+        assertArrayEquals(new UnsignedBigInt(258).toByteArray(), new byte[] {1, 2});
+        byte[] ones = new byte[16];
+        Arrays.fill(ones, (byte)0xff);
+        assertArrayEquals(new UnsignedBigInt("340282366920938463463374607431768211455").toByteArray(), ones);
+        for(UnsignedBigInt x : values) {
+            BigInteger b = new BigInteger(1, x.toByteArray());
+            assertEquals(b.toString(), x.toString());
+            assertEquals(UnsignedBigInt.fromByteArray(x.toByteArray()), x);
+        }
+        assertEquals(UnsignedBigInt.fromByteArray(new byte[] {0, 0, 1, 0}), new UnsignedBigInt(256));
+    }
+
+    @Test
+    public void testByteBufferOrders() {
+        UnsignedBigInt x = new UnsignedBigInt("1879644741034847868056015610870848944168653063431178983823208626875627090485208475076754546260589743651663779327536544916706200904");
+        ByteBuffer big = ByteBuffer.allocate(x.byteLength());
+        ByteBuffer little = ByteBuffer.allocateDirect(x.byteLength()).order(ByteOrder.LITTLE_ENDIAN);
+        x.write(big);
+        x.write(little);
+        assertFalse(big.hasRemaining());
+        for(int i = 0; i < x.byteLength(); i++) {
+            assertEquals(big.get(i), little.get(x.byteLength() - 1 - i));
+        }
+        big.flip();
+        little.flip();
+        assertEquals(UnsignedBigInt.read(big, x.byteLength()), x);
+        assertEquals(UnsignedBigInt.read(little, x.byteLength()), x);
+    }
+
+    @Test
+    public void testBufferOrderKept() {
+        BinaryCodec codec = new BinaryCodec(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buf = ByteBuffer.allocate(codec.encodedLength(values.get(5)));
+        codec.write(values.get(5), buf);
+        assertEquals(buf.order(), ByteOrder.BIG_ENDIAN);
+        buf.flip();
+        assertEquals(codec.read(buf), values.get(5));
+        assertEquals(buf.order(), ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testLengthAboveMaximum() throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(8);
+        buf.putInt(Integer.MAX_VALUE).putInt(0).flip();
+        new BinaryCodec().readAll(channel(buf));
+    }
+
+    @Test(expected = java.io.EOFException.class)
+    public void testLengthBeyondFile() throws Exception {
+        File file = File.createTempFile("binarycodec", ".bin");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            buf.putInt(BinaryCodec.DEFAULT_MAX_LENGTH).putInt(0).flip();
+            raf.getChannel().write(buf);
+            raf.getChannel().position(0);
+            new BinaryCodec().readAll(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test(expected = java.nio.BufferOverflowException.class)
+    public void testWriteOverflow() {
+        new UnsignedBigInt(65536).write(ByteBuffer.allocate(2));
+    }
+
+    @Test
+    public void testBuffer() {
+        for(ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            BinaryCodec codec = new BinaryCodec(order);
+            ByteBuffer buf = ByteBuffer.allocate((int)codec.encodedLength(values));
+            codec.writeAll(values, buf);
+            assertFalse(buf.hasRemaining());
+            buf.flip();
+            assertEquals(codec.readAll(buf), values);
+        }
+    }
+
+    @Test
+    public void testChannelAndMapping() throws Exception {
+        for(int i = 0; i < 3; i++) {
+            values.add(new UnsignedBigInt(new BigInteger(8 * BinaryCodec.BUFFER_SIZE + 100, r).toString()));
+        }
+        File file = File.createTempFile("binarycodec", ".bin");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel ch = raf.getChannel();
+            BinaryCodec codec = new BinaryCodec(ByteOrder.LITTLE_ENDIAN);
+            long written = codec.writeAll(values, ch);
+            assertEquals(written, ch.size());
+            ch.position(0);
+            assertEquals(codec.readAll(ch), values);
+            assertEquals(codec.readMapped(ch, 0, written), values);
+
+            ch.truncate(0);
+            assertEquals(codec.writeMapped(values, ch, 16), written);
+            assertEquals(codec.readMapped(ch, 16, written), values);
+            ch.position(16);
+            assertEquals(codec.readAll(ch), values);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test(expected = java.io.EOFException.class)
+    public void testTruncatedChannel() throws Exception {
+        BinaryCodec codec = new BinaryCodec();
+        ByteBuffer buf = ByteBuffer.allocate(codec.encodedLength(values.get(10)));
+        codec.write(values.get(10), buf);
+        buf.flip();
+        buf.limit(buf.limit() - 1);
+        codec.readAll(channel(buf));
+    }
+
+    /**
+     * Returns a channel reading the remaining bytes of source
+     */
+    private static java.nio.channels.ReadableByteChannel channel(final ByteBuffer source) {
+        return new java.nio.channels.ReadableByteChannel() {
+            public int read(ByteBuffer dst) {
+                if(!source.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(dst.remaining(), source.remaining());
+                ByteBuffer slice = source.duplicate();
+                slice.limit(slice.position() + n);
+                dst.put(slice);
+                source.position(source.position() + n);
+                return n;
+            }
+            public boolean isOpen() {
+                return true;
+            }
+            public void close() {
+            }
+        };
+    }
+
+}
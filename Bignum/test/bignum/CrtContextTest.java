@@ -0,0 +1,63 @@
+package bignum;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CrtContextTest {
+    
+    private UnsignedBigInt p;
+    private UnsignedBigInt q;
+    private CrtContext context;
+    
+    @Before
+    public void setUp() {
+        p = new UnsignedBigInt("170141183460469231731687303715884105727");
+        q = new UnsignedBigInt("618970019642690137449562111");
+        context = new CrtContext(p, q);
+    }
+    
+    @Test
+    public void testGetModulus() {
+        assertEquals(context.getModulus(), p.multiply(q));
+    }
+    
+    @Test
+    public void testModPow() {
+        UnsignedBigInt x = new UnsignedBigInt("12341234123412341234123412341234123412341234");
+        UnsignedBigInt d = new UnsignedBigInt("98765432109876543210987654321");
+        assertEquals(context.modPow(x, d), x.modPow(d, p.multiply(q)));
+        assertEquals(context.modPow(x, UnsignedBigInt.ZERO), UnsignedBigInt.ONE);
+        assertEquals(context.modPow(p, d), p.modPow(d, p.multiply(q)));
+        assertEquals(context.modPow(x, p.subtract(UnsignedBigInt.ONE)), x.modPow(p.subtract(UnsignedBigInt.ONE), p.multiply(q)));
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testSamePrimes() {
+        new CrtContext(p, p);
+    }
+    
+    @Test
+    public void testRandomizedRsa() {
+        Random r = new Random();
+        UnsignedBigInt p = UnsignedBigInt.probablePrime(256, r);
+        UnsignedBigInt q = UnsignedBigInt.probablePrime(256, r);
+        UnsignedBigInt n = p.multiply(q);
+        UnsignedBigInt phi = p.subtract(UnsignedBigInt.ONE).multiply(q.subtract(UnsignedBigInt.ONE));
+        UnsignedBigInt e = new UnsignedBigInt(65537);
+        if(!phi.gcd(e).equals(UnsignedBigInt.ONE)) {
+            return;
+        }
+        UnsignedBigInt d = e.modInverse(phi);
+        CrtContext crt = new CrtContext(p, q);
+        for(int i = 0; i < 8; i++) {
+            BigInteger m = new BigInteger(500, r);
+            UnsignedBigInt message = new UnsignedBigInt(m.toString());
+            UnsignedBigInt cipher = message.modPow(e, n);
+            assertEquals(crt.modPow(cipher, d), message);
+        }
+    }
+    
+}
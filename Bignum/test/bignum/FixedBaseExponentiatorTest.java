@@ -0,0 +1,67 @@
+package bignum;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FixedBaseExponentiatorTest {
+    
+    private UnsignedBigInt odd;
+    private UnsignedBigInt even;
+    private UnsignedBigInt g;
+    
+    @Before
+    public void setUp() {
+        odd = new UnsignedBigInt("170141183460469231731687303715884105727");
+        even = new UnsignedBigInt("1361129467683753853871945173800782397440");
+        g = new UnsignedBigInt("98765432109876543210987654321");
+    }
+    
+    @Test
+    public void testModPow() {
+        UnsignedBigInt e = new UnsignedBigInt("12341234123412341234123412341234123412341234");
+        FixedBaseExponentiator f = new FixedBaseExponentiator(g, odd, 160);
+        assertEquals(f.modPow(e), g.modPow(e, odd));
+        assertEquals(f.modPow(UnsignedBigInt.ZERO), UnsignedBigInt.ONE);
+        assertEquals(f.modPow(UnsignedBigInt.ONE), g);
+        assertEquals(f.getModulus(), odd);
+    }
+    
+    @Test
+    public void testModPow_evenModulus() {
+        UnsignedBigInt e = new UnsignedBigInt("12341234123412341234123412341234123412341234");
+        FixedBaseExponentiator f = new FixedBaseExponentiator(g, even, 160, 3);
+        assertEquals(f.modPow(e), g.modPow(e, even));
+    }
+    
+    @Test
+    public void testModPow_longExponent() {
+        UnsignedBigInt e = new UnsignedBigInt("12341234123412341234123412341234123412341234");
+        FixedBaseExponentiator f = new FixedBaseExponentiator(g, odd, 64);
+        assertEquals(f.modPow(e), g.modPow(e, odd));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTeeth() {
+        new FixedBaseExponentiator(g, odd, 160, 0);
+    }
+    
+    @Test
+    public void testRandomizedTeeth() {
+        Random r = new Random();
+        BigInteger m = new BigInteger(512, r).setBit(511);
+        BigInteger b = new BigInteger(512, r);
+        UnsignedBigInt base = new UnsignedBigInt(b.toString());
+        for(int teeth = 1; teeth <= 8; teeth++) {
+            BigInteger modulus = teeth % 2 == 0 ? m.setBit(0) : m.clearBit(0);
+            FixedBaseExponentiator f = new FixedBaseExponentiator(base, new UnsignedBigInt(modulus.toString()), 300, teeth);
+            for(int i = 0; i < 4; i++) {
+                BigInteger e = new BigInteger(r.nextInt(301), r);
+                assertEquals(f.modPow(new UnsignedBigInt(e.toString())).toString(), b.modPow(e, modulus).toString());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,127 @@
+package bignum;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private UnsignedBigInt a;
+    private UnsignedBigInt b;
+
+    @Before
+    public void setUp() {
+        a = new UnsignedBigInt("1879644741034847868056015610870848944168653063431178983823208626875627090485208475076754546260589743651663779327536544916706200904");
+        b = new UnsignedBigInt("98765432109876543210987654321");
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void testDisabled() {
+        a.multiply(b);
+        assertEquals(Metrics.getCalls(Metrics.Operation.MULTIPLY), 0);
+    }
+
+    @Test
+    public void testToStringDividesByReciprocal() {
+        // 2^19 bits split at a power of ten of about 3800 limbs, which long division would
+        // handle in quadratic time without recording any multiplication
+        UnsignedBigInt x = UnsignedBigInt.ONE.shiftLeft(1 << 19).subtract(UnsignedBigInt.ONE);
+        Metrics.setEnabled(true);
+        String s = x.toString();
+        Metrics.setEnabled(false);
+        assertEquals(s, java.math.BigInteger.ONE.shiftLeft(1 << 19).subtract(java.math.BigInteger.ONE).toString());
+        assertTrue(Metrics.getCalls(Metrics.Operation.MULTIPLY) > 0);
+    }
+
+    @Test
+    public void testCounters() {
+        Metrics.setEnabled(true);
+        a.multiply(b);
+        a.multiply(a);
+        a.divideAndRemainder(b);
+        new UnsignedBigInt(3).multiply(new UnsignedBigInt(5));
+
+        assertEquals(Metrics.getCalls(Metrics.Operation.MULTIPLY), 2);
+        assertEquals(Metrics.getCalls(Metrics.Operation.DIVIDE), 1);
+        assertEquals(Metrics.getResultBytes(Metrics.Operation.MULTIPLY), 8 * (9 + 14));
+        assertTrue(Metrics.getNanos(Metrics.Operation.MULTIPLY) > 0);
+
+        // a has 430 bits
+        long[] histogram = Metrics.getSizeHistogram(Metrics.Operation.MULTIPLY);
+        assertEquals(histogram[8], 2);
+        assertEquals(histogram[9], 0);
+
+        Metrics.reset();
+        assertEquals(Metrics.getCalls(Metrics.Operation.MULTIPLY), 0);
+    }
+
+    @Test
+    public void testMultiplyVariants() {
+        Metrics.setEnabled(true);
+        a.karatsuba(b);
+        a.parallelMultiply(b);
+        assertEquals(Metrics.getCalls(Metrics.Operation.KARATSUBA), 1);
+        assertEquals(Metrics.getCalls(Metrics.Operation.PARALLEL_MULTIPLY), 1);
+        assertEquals(Metrics.getCalls(Metrics.Operation.MULTIPLY), 0);
+    }
+
+    @Test
+    public void testListener() {
+        final List<Metrics.Operation> ops = new ArrayList<Metrics.Operation>();
+        MetricsListener listener = new MetricsListener() {
+            @Override
+            public void operationCompleted(Metrics.Operation op, int bits, long nanos, long bytes) {
+                ops.add(op);
+            }
+        };
+        Metrics.addListener(listener);
+        Metrics.setEnabled(true);
+        a.toString();
+        b.gcd(a);
+        Metrics.removeListener(listener);
+        a.toString();
+
+        assertEquals(ops.size(), 2);
+        assertEquals(ops.get(0), Metrics.Operation.TO_STRING);
+        assertEquals(ops.get(1), Metrics.Operation.GCD);
+    }
+
+    @Test
+    public void testMXBean() throws Exception {
+        Metrics.register();
+        Metrics.register();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+        try {
+            server.setAttribute(name, new javax.management.Attribute("Enabled", true));
+            assertTrue(Metrics.isEnabled());
+            a.add(b);
+
+            TabularData calls = (TabularData)server.getAttribute(name, "Calls");
+            CompositeData row = calls.get(new Object[] {"ADD"});
+            assertEquals(row.get("value"), 1L);
+
+            server.invoke(name, "reset", null, null);
+            assertEquals(Metrics.getCalls(Metrics.Operation.ADD), 0);
+        } finally {
+            Metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+}
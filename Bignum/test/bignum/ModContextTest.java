@@ -0,0 +1,128 @@
+package bignum;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ModContextTest {
+    
+    private ModContext odd;
+    private ModContext even;
+    private UnsignedBigInt a;
+    private UnsignedBigInt b;
+    
+    @Before
+    public void setUp() {
+        odd = new ModContext(new UnsignedBigInt("170141183460469231731687303715884105727"));
+        even = new ModContext(new UnsignedBigInt("1361129467683753853871945173800782397440"));
+        a = new UnsignedBigInt("1879644741034847868056015610870848944168653063431178983823208626875627090485208475076754546260589743651663779327536544916706200904");
+        b = new UnsignedBigInt("98765432109876543210987654321");
+    }
+    
+    @Test
+    public void testGetModulus() {
+        assertEquals(odd.getModulus(), new UnsignedBigInt("170141183460469231731687303715884105727"));
+    }
+    
+    @Test
+    public void testReduce() {
+        assertEquals(odd.reduce(a), new UnsignedBigInt("112030870005706493430982324930618011907"));
+        assertEquals(even.reduce(a), new UnsignedBigInt("714291673793862247824314026008295279944"));
+        assertEquals(odd.reduce(b), b);
+    }
+    
+    @Test
+    public void testMulMod() {
+        assertEquals(odd.mulMod(a, b), new UnsignedBigInt("152309028996015508684197949280801823745"));
+        assertEquals(even.mulMod(a, b), new UnsignedBigInt("781713918464676957750436527363095596744"));
+    }
+    
+    @Test
+    public void testSqrMod() {
+        assertEquals(odd.sqrMod(b), new UnsignedBigInt("251644351131075793559180475055117136"));
+    }
+    
+    @Test
+    public void testModPow() {
+        assertEquals(odd.modPow(b, a), new UnsignedBigInt("37654180746861485091292264786142041472"));
+        assertEquals(even.modPow(b, a), new UnsignedBigInt("1054226236568368952907916325045927976321"));
+        assertEquals(odd.modPow(b, UnsignedBigInt.ZERO), UnsignedBigInt.ONE);
+    }
+    
+    @Test
+    public void testMultiModPow() {
+        assertEquals(odd.multiModPow(a, b, b, a), odd.mulMod(odd.modPow(a, b), odd.modPow(b, a)));
+        assertEquals(even.multiModPow(a, b, b, a), even.mulMod(even.modPow(a, b), even.modPow(b, a)));
+        assertEquals(odd.multiModPow(a, UnsignedBigInt.ZERO, b, UnsignedBigInt.ZERO), UnsignedBigInt.ONE);
+        assertEquals(odd.multiModPow(a, UnsignedBigInt.ONE, b, UnsignedBigInt.ZERO), odd.reduce(a));
+    }
+    
+    @Test
+    public void testModPowAll() {
+        List<UnsignedBigInt> bases = Arrays.asList(a, b, UnsignedBigInt.TWO);
+        List<UnsignedBigInt> exponents = Arrays.asList(b, a, UnsignedBigInt.ZERO);
+        List<UnsignedBigInt> results = odd.modPowAll(bases, exponents);
+        assertEquals(results.size(), 3);
+        assertEquals(results.get(0), odd.modPow(a, b));
+        assertEquals(results.get(1), odd.modPow(b, a));
+        assertEquals(results.get(2), UnsignedBigInt.ONE);
+        assertEquals(UnsignedBigInt.modPowAll(bases, exponents, even.getModulus()).get(1), even.modPow(b, a));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testModPowAll_sizeMismatch() {
+        odd.modPowAll(Arrays.asList(a, b), Arrays.asList(a));
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testZeroModulus() {
+        new ModContext(UnsignedBigInt.ZERO);
+    }
+    
+    @Test
+    public void testRandomizedBatch() {
+        Random r = new Random();
+        BigInteger m = new BigInteger(256, r).setBit(255).setBit(0);
+        ModContext context = new ModContext(new UnsignedBigInt(m.toString()));
+        List<UnsignedBigInt> bases = new ArrayList<UnsignedBigInt>();
+        List<UnsignedBigInt> exponents = new ArrayList<UnsignedBigInt>();
+        List<BigInteger> expected = new ArrayList<BigInteger>();
+        for(int i = 0; i < 100; i++) {
+            BigInteger x = new BigInteger(256, r);
+            BigInteger y = new BigInteger(r.nextInt(300), r);
+            bases.add(new UnsignedBigInt(x.toString()));
+            exponents.add(new UnsignedBigInt(y.toString()));
+            expected.add(x.modPow(y, m));
+        }
+        List<UnsignedBigInt> results = context.modPowAll(bases, exponents);
+        for(int i = 0; i < 100; i++) {
+            assertEquals(results.get(i).toString(), expected.get(i).toString());
+            int j = (i + 1) % 100;
+            BigInteger product = expected.get(i).multiply(expected.get(j)).mod(m);
+            assertEquals(context.multiModPow(bases.get(i), exponents.get(i), bases.get(j), exponents.get(j)).toString(), product.toString());
+        }
+    }
+    
+    @Test
+    public void testRandomizedReuse() {
+        Random r = new Random();
+        BigInteger m = new BigInteger(512, r).setBit(511);
+        ModContext context = new ModContext(new UnsignedBigInt(m.toString()));
+        for(int i = 0; i < 8; i++) {
+            BigInteger x = new BigInteger(1024, r);
+            BigInteger y = new BigInteger(512, r);
+            UnsignedBigInt c = new UnsignedBigInt(x.toString());
+            UnsignedBigInt d = new UnsignedBigInt(y.toString());
+            
+            assertEquals(context.reduce(c).toString(), x.mod(m).toString());
+            assertEquals(context.mulMod(c, d).toString(), x.multiply(y).mod(m).toString());
+            assertEquals(context.modPow(c, d).toString(), x.modPow(y, m).toString());
+        }
+    }
+    
+}
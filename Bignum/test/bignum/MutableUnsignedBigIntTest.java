@@ -0,0 +1,102 @@
+package bignum;
+
+import java.math.BigInteger;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MutableUnsignedBigIntTest {
+    
+    private UnsignedBigInt a;
+    private UnsignedBigInt b;
+    
+    @Before
+    public void setUp() {
+        a = new UnsignedBigInt("12341234");
+        b = new UnsignedBigInt("12341234123412341234123412341234123412341234");
+    }
+    
+    @Test
+    public void testSetAndConvert() {
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(b);
+        assertEquals(m.toUnsignedBigInt(), b);
+        assertEquals(m.set(a).toUnsignedBigInt(), a);
+        assertEquals(m.set(7).toString(), "7");
+        assertTrue(m.set(0).isZero());
+        assertEquals(m.toUnsignedBigInt(), UnsignedBigInt.ZERO);
+    }
+    
+    @Test
+    public void testAdd() {
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(a);
+        assertEquals(m.add(b).toUnsignedBigInt(), new UnsignedBigInt("12341234123412341234123412341234123424682468"));
+        assertEquals(m.set(a).add(m).toUnsignedBigInt(), new UnsignedBigInt("24682468"));
+    }
+    
+    @Test
+    public void testSubtract() {
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(b);
+        assertEquals(m.subtract(a).toUnsignedBigInt(), new UnsignedBigInt("12341234123412341234123412341234123400000000"));
+        assertTrue(m.subtract(m).isZero());
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testSubtract_negativeDifference() {
+        new MutableUnsignedBigInt(a).subtract(b);
+    }
+    
+    @Test
+    public void testMultiply() {
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(a);
+        assertEquals(m.multiply(b).toUnsignedBigInt(), new UnsignedBigInt("152306058165816581658165816581658165816581656642756"));
+        assertEquals(m.set(a).square().toUnsignedBigInt(), new UnsignedBigInt("152306056642756"));
+        MutableUnsignedBigInt n = new MutableUnsignedBigInt(b);
+        assertEquals(m.set(a).multiply(m, n).toUnsignedBigInt(), a.multiply(b));
+    }
+    
+    @Test
+    public void testSingleWordOperands() {
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(b);
+        assertEquals(m.add(UnsignedBigInt.ZERO).toUnsignedBigInt(), b);
+        assertEquals(m.multiply(a).add(a).subtract(a).toUnsignedBigInt(), b.multiply(a));
+        assertEquals(m.set(new UnsignedBigInt(-1L)).add(new UnsignedBigInt(-1L)).toUnsignedBigInt(), new UnsignedBigInt(-1L).shiftLeft(1));
+        assertTrue(m.multiply(UnsignedBigInt.ZERO).isZero());
+    }
+
+    @Test
+    public void testModPow() {
+        ModContext c = new ModContext(new UnsignedBigInt("170141183460469231731687303715884105727"));
+        MutableUnsignedBigInt m = new MutableUnsignedBigInt(b);
+        UnsignedBigInt e = new UnsignedBigInt("65537");
+        assertEquals(m.modPow(m, e, c).toUnsignedBigInt(), b.modPow(e, c.getModulus()));
+        assertEquals(m.set(b).mod(c).toUnsignedBigInt(), c.reduce(b));
+    }
+    
+    @Test
+    public void testRandomizedAccumulation() {
+        Random r = new Random(1);
+        BigInteger expected = BigInteger.ZERO;
+        MutableUnsignedBigInt sum = new MutableUnsignedBigInt();
+        MutableUnsignedBigInt product = new MutableUnsignedBigInt();
+        MutableUnsignedBigInt power = new MutableUnsignedBigInt();
+        ModContext even = new ModContext(new UnsignedBigInt(BigInteger.ONE.shiftLeft(300).add(BigInteger.valueOf(6)).toString()));
+        ModContext odd = new ModContext(new UnsignedBigInt(BigInteger.ONE.shiftLeft(300).add(BigInteger.valueOf(7)).toString()));
+        for(int i = 0; i < 200; i++) {
+            BigInteger x = new BigInteger(r.nextInt(3000), r);
+            BigInteger y = new BigInteger(r.nextInt(3000), r);
+            UnsignedBigInt ux = new UnsignedBigInt(x.toString());
+            
+            expected = expected.add(x.multiply(y));
+            product.set(ux).multiply(new UnsignedBigInt(y.toString()));
+            sum.add(product);
+            assertEquals(sum.toString(), expected.toString());
+            
+            ModContext c = i % 2 == 0 ? odd : even;
+            BigInteger m = new BigInteger(c.getModulus().toString());
+            power.set(ux).modPow(power, new UnsignedBigInt(y.toString()), c);
+            assertEquals(power.toString(), x.modPow(y, m).toString());
+        }
+    }
+    
+}
@@ -63,6 +63,99 @@ public class RandomizedTest {
         }
     }
     
+    @Test
+    public void randomizedLongArithmeticTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r);
+            BigInteger b = new BigInteger(1 + r.nextInt(64), r).setBit(r.nextInt(64));
+            long l = b.longValue();
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            BigInteger biResult[] = a.divideAndRemainder(b);
+            UnsignedBigInt ubiResult[] = c.divideAndRemainder(l);
+
+            assertTrue(a.add(b).toString().equals(c.add(l).toString()));
+            assertTrue(a.multiply(b).toString().equals(c.multiply(l).toString()));
+            assertTrue(biResult[0].toString().equals(ubiResult[0].toString()));
+            assertTrue(biResult[1].toString().equals(ubiResult[1].toString()));
+            assertTrue(biResult[1].toString().equals(new UnsignedBigInt(c.mod(l)).toString()));
+        }
+    }
+    
+    @Test
+    public void randomizedGcdTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger f = new BigInteger(TESTS_MULTIPLIER, r).add(BigInteger.ONE);
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r).multiply(f);
+            BigInteger b = new BigInteger(TESTS_MULTIPLIER * (TESTS_AMOUNT + 1 - i), r).multiply(f);
+            BigInteger m = new BigInteger(TESTS_MULTIPLIER * i, r).add(BigInteger.valueOf(2));
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            UnsignedBigInt d = new UnsignedBigInt(b.toString());
+            UnsignedBigInt n = new UnsignedBigInt(m.toString());
+
+            assertTrue(a.gcd(b).toString().equals(c.gcd(d).toString()));
+            for(int j = 0; j < 8; j++) {
+                BigInteger x = new BigInteger(TESTS_MULTIPLIER * i + 64, r);
+                if(x.gcd(m).equals(BigInteger.ONE)) {
+                    assertTrue(x.modInverse(m).toString().equals(new UnsignedBigInt(x.toString()).modInverse(n).toString()));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void randomizedPrimalityTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r);
+            BigInteger p = BigInteger.probablePrime(TESTS_MULTIPLIER * i, r);
+
+            assertTrue(a.isProbablePrime(50) == new UnsignedBigInt(a.toString()).isProbablePrime(50));
+            assertTrue(new UnsignedBigInt(p.toString()).isProbablePrime(50));
+            assertTrue(!new UnsignedBigInt(p.multiply(p).toString()).isProbablePrime(50));
+        }
+    }
+    
+    @Test
+    public void randomizedShiftTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r);
+            int n = r.nextInt(TESTS_MULTIPLIER * i);
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            BitArray bits = new BitArray(c.bits());
+            bits.shiftLeft(n);
+
+            assertTrue(a.shiftLeft(n).toString().equals(c.shiftLeft(n).toString()));
+            assertTrue(a.shiftRight(n).toString().equals(c.shiftRight(n).toString()));
+            assertTrue(a.shiftLeft(n).toString().equals(new UnsignedBigInt(bits).toString()));
+            assertTrue(a.shiftLeft(n).bitLength() == bits.length());
+            bits.shiftRight(n + 1);
+            assertTrue(a.shiftRight(1).toString().equals(new UnsignedBigInt(bits).toString()));
+        }
+    }
+    
+    @Test
+    public void randomizedBitwiseTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r);
+            BigInteger b = new BigInteger(TESTS_MULTIPLIER * (TESTS_AMOUNT + 1 - i), r);
+            int n = r.nextInt(TESTS_MULTIPLIER * TESTS_AMOUNT);
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            UnsignedBigInt d = new UnsignedBigInt(b.toString());
+
+            assertTrue(a.and(b).toString().equals(c.and(d).toString()));
+            assertTrue(a.or(b).toString().equals(c.or(d).toString()));
+            assertTrue(a.xor(b).toString().equals(c.xor(d).toString()));
+            assertTrue(a.andNot(b).toString().equals(c.andNot(d).toString()));
+            assertTrue(a.flipBit(n).toString().equals(c.flipBit(n).toString()));
+            assertTrue(a.testBit(n) == c.testBit(n));
+            assertTrue(a.bitCount() == c.bitCount());
+            assertTrue(a.getLowestSetBit() == c.getLowestSetBit());
+        }
+    }
+    
     @Test
     public void randomizedDivideTest() {
         for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
@@ -82,4 +175,215 @@ public class RandomizedTest {
         }
     }
     
-}
\ No newline at end of file
+    @Test
+    public void randomizedDivideUnbalancedTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 2, r);
+            BigInteger b = new BigInteger(TESTS_MULTIPLIER * i, r).add(BigInteger.ONE);
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            UnsignedBigInt d = new UnsignedBigInt(b.toString());
+            
+            BigInteger biResult[] = a.divideAndRemainder(b);
+            UnsignedBigInt ubiResult[] = c.divideAndRemainder(d);
+            
+            assertTrue("Quotient mismatch: was " + ubiResult[0].toString() + ", expected " + biResult[0].toString(),
+                    biResult[0].toString().equals(ubiResult[0].toString()));
+            assertTrue("Remainder mismatch: was " + ubiResult[1].toString() + ", expected " + biResult[1].toString(),
+                    biResult[1].toString().equals(ubiResult[1].toString()));
+        }
+    }
+    
+    @Test
+    public void randomizedModPowTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i, r);
+            BigInteger e = new BigInteger(TESTS_MULTIPLIER * i, r);
+            BigInteger m = new BigInteger(TESTS_MULTIPLIER * i, r).add(BigInteger.ONE);
+
+            UnsignedBigInt c = new UnsignedBigInt(a.toString());
+            UnsignedBigInt d = new UnsignedBigInt(e.toString());
+            UnsignedBigInt n = new UnsignedBigInt(m.toString());
+
+            assertTrue(a.modPow(e, m).toString().equals(c.modPow(d, n).toString()));
+        }
+    }
+    
+    @Test
+    public void randomizedKaratsubaTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 32, r);
+            BigInteger b = new BigInteger(TESTS_MULTIPLIER * i * 32, r);
+            BigInteger c = new BigInteger(TESTS_MULTIPLIER * i * 10, r);
+
+            UnsignedBigInt d = new UnsignedBigInt(a.toString());
+            UnsignedBigInt e = new UnsignedBigInt(b.toString());
+            UnsignedBigInt f = new UnsignedBigInt(c.toString());
+
+            assertTrue(a.multiply(b).toString().equals(d.multiply(e).toString()));
+            assertTrue(a.multiply(c).toString().equals(d.multiply(f).toString()));
+            assertTrue(a.multiply(c).toString().equals(d.karatsuba(f).toString()));
+        }
+    }
+    
+    @Test
+    public void randomizedNewtonDivideTest() {
+        int newton = UnsignedBigInt.NEWTON_DIVISION_THRESHOLD;
+        try {
+            UnsignedBigInt.NEWTON_DIVISION_THRESHOLD = 2;
+            for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 24 + r.nextInt(64), r);
+                BigInteger b = new BigInteger(TESTS_MULTIPLIER * i * 4 + r.nextInt(64), r).setBit(TESTS_MULTIPLIER * i * 4);
+                BigInteger p = BigInteger.ONE.shiftLeft(TESTS_MULTIPLIER * i * 4);
+
+                UnsignedBigInt c = new UnsignedBigInt(a.toString());
+                UnsignedBigInt d = new UnsignedBigInt(b.toString());
+                UnsignedBigInt q = new UnsignedBigInt(p.toString());
+
+                UnsignedBigInt[] qr = c.divideAndRemainder(d);
+                assertTrue(a.divide(b).toString().equals(qr[0].toString()));
+                assertTrue(a.mod(b).toString().equals(qr[1].toString()));
+                assertTrue(a.mod(p).toString().equals(c.mod(q).toString()));
+                assertTrue(a.divide(p.subtract(BigInteger.ONE)).toString().equals(c.divide(q.subtract(UnsignedBigInt.ONE)).toString()));
+            }
+        } finally {
+            UnsignedBigInt.NEWTON_DIVISION_THRESHOLD = newton;
+        }
+    }
+    
+    @Test
+    public void randomizedRootTest() {
+        for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+            for(int k = 2; k <= 5; k++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 8, r);
+                BigInteger root = new BigInteger(new UnsignedBigInt(a.toString()).nthRoot(k).toString());
+                assertTrue(root.pow(k).compareTo(a) <= 0);
+                assertTrue(root.add(BigInteger.ONE).pow(k).compareTo(a) > 0);
+
+                BigInteger power = new BigInteger(TESTS_MULTIPLIER * i, r).pow(k);
+                UnsignedBigInt c = new UnsignedBigInt(power.toString());
+                assertTrue(new BigInteger(c.nthRoot(k).toString()).pow(k).equals(power));
+                if(power.signum() > 0) {
+                    assertTrue(new BigInteger(c.subtract(UnsignedBigInt.ONE).nthRoot(k).toString()).pow(k).compareTo(power) < 0);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void randomizedLargeMultiplyTest() {
+        int karatsuba = UnsignedBigInt.KARATSUBA_THRESHOLD;
+        int toomCook = UnsignedBigInt.TOOM_COOK_THRESHOLD;
+        int ntt = UnsignedBigInt.NTT_THRESHOLD;
+        try {
+            for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 32, r);
+                BigInteger b = new BigInteger(TESTS_MULTIPLIER * i * 24, r);
+
+                UnsignedBigInt c = new UnsignedBigInt(a.toString());
+                UnsignedBigInt d = new UnsignedBigInt(b.toString());
+
+                UnsignedBigInt.KARATSUBA_THRESHOLD = 4;
+                UnsignedBigInt.TOOM_COOK_THRESHOLD = 12;
+                UnsignedBigInt.NTT_THRESHOLD = Integer.MAX_VALUE;
+                assertTrue(a.multiply(b).toString().equals(c.multiply(d).toString()));
+                
+                UnsignedBigInt.NTT_THRESHOLD = 1;
+                assertTrue(a.multiply(b).toString().equals(c.multiply(d).toString()));
+            }
+        } finally {
+            UnsignedBigInt.KARATSUBA_THRESHOLD = karatsuba;
+            UnsignedBigInt.TOOM_COOK_THRESHOLD = toomCook;
+            UnsignedBigInt.NTT_THRESHOLD = ntt;
+        }
+    }
+    
+    @Test
+    public void randomizedSquareTest() {
+        int karatsuba = UnsignedBigInt.KARATSUBA_THRESHOLD;
+        int karatsubaSquare = UnsignedBigInt.KARATSUBA_SQUARE_THRESHOLD;
+        int toomCook = UnsignedBigInt.TOOM_COOK_THRESHOLD;
+        int ntt = UnsignedBigInt.NTT_THRESHOLD;
+        try {
+            for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 32, r);
+                BigInteger m = new BigInteger(TESTS_MULTIPLIER * i * 32, r).setBit(0);
+                BigInteger e = new BigInteger(64, r);
+
+                UnsignedBigInt b = new UnsignedBigInt(a.toString());
+                UnsignedBigInt n = new UnsignedBigInt(m.toString());
+                UnsignedBigInt f = new UnsignedBigInt(e.toString());
+
+                assertTrue(a.multiply(a).toString().equals(b.square().toString()));
+                assertTrue(a.multiply(a).toString().equals(b.multiply(b).toString()));
+                
+                UnsignedBigInt.KARATSUBA_THRESHOLD = 4;
+                UnsignedBigInt.KARATSUBA_SQUARE_THRESHOLD = 4;
+                UnsignedBigInt.TOOM_COOK_THRESHOLD = 12;
+                UnsignedBigInt.NTT_THRESHOLD = Integer.MAX_VALUE;
+                assertTrue(a.multiply(a).toString().equals(b.square().toString()));
+                assertTrue(a.modPow(e, m).toString().equals(b.modPow(f, n).toString()));
+                
+                UnsignedBigInt.NTT_THRESHOLD = 1;
+                assertTrue(a.multiply(a).toString().equals(b.square().toString()));
+                
+                UnsignedBigInt.KARATSUBA_THRESHOLD = karatsuba;
+                UnsignedBigInt.KARATSUBA_SQUARE_THRESHOLD = karatsubaSquare;
+                UnsignedBigInt.TOOM_COOK_THRESHOLD = toomCook;
+                UnsignedBigInt.NTT_THRESHOLD = ntt;
+            }
+        } finally {
+            UnsignedBigInt.KARATSUBA_THRESHOLD = karatsuba;
+            UnsignedBigInt.KARATSUBA_SQUARE_THRESHOLD = karatsubaSquare;
+            UnsignedBigInt.TOOM_COOK_THRESHOLD = toomCook;
+            UnsignedBigInt.NTT_THRESHOLD = ntt;
+        }
+    }
+    
+    @Test
+    public void randomizedParallelMultiplyTest() {
+        int parallel = UnsignedBigInt.PARALLEL_THRESHOLD;
+        try {
+            UnsignedBigInt.PARALLEL_THRESHOLD = 16;
+            for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 32, r);
+                BigInteger b = new BigInteger(TESTS_MULTIPLIER * i * 24, r);
+                BigInteger c = new BigInteger(TESTS_MULTIPLIER * i * 8, r);
+
+                UnsignedBigInt d = new UnsignedBigInt(a.toString());
+                UnsignedBigInt e = new UnsignedBigInt(b.toString());
+                UnsignedBigInt f = new UnsignedBigInt(c.toString());
+
+                assertTrue(a.multiply(b).toString().equals(d.parallelMultiply(e).toString()));
+                assertTrue(a.multiply(c).toString().equals(d.parallelMultiply(f).toString()));
+            }
+        } finally {
+            UnsignedBigInt.PARALLEL_THRESHOLD = parallel;
+        }
+    }
+    
+    @Test
+    public void randomizedDecimalConversionTest() {
+        int threshold = UnsignedBigInt.RADIX_CONVERSION_THRESHOLD;
+        int newton = UnsignedBigInt.NEWTON_DIVISION_THRESHOLD;
+        try {
+            for(int i = 1; i <= TESTS_AMOUNT * TESTS_ENABLED; i++) {
+                BigInteger a = new BigInteger(TESTS_MULTIPLIER * i * 64, r);
+                
+                UnsignedBigInt.RADIX_CONVERSION_THRESHOLD = threshold;
+                assertTrue(a.toString().equals(new UnsignedBigInt(a.toString()).toString()));
+                
+                UnsignedBigInt.RADIX_CONVERSION_THRESHOLD = 2;
+                assertTrue(a.toString().equals(new UnsignedBigInt(a.toString()).toString()));
+                
+                UnsignedBigInt.NEWTON_DIVISION_THRESHOLD = 2;
+                assertTrue(a.toString().equals(new UnsignedBigInt(a.toString()).toString()));
+                UnsignedBigInt.NEWTON_DIVISION_THRESHOLD = newton;
+            }
+        } finally {
+            UnsignedBigInt.RADIX_CONVERSION_THRESHOLD = threshold;
+            UnsignedBigInt.NEWTON_DIVISION_THRESHOLD = newton;
+        }
+    }
+    
+}
@@ -1,5 +1,9 @@
 package bignum;
 
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -25,12 +29,76 @@ public class UnsignedBigIntTest {
         assertEquals(b.toString(), "12341234123412341234123412341234123412341234");
     }
     
+    @Test
+    public void testStringConstructor_leadingZeros() {
+        assertEquals(new UnsignedBigInt("0000012341234"), a);
+        assertEquals(new UnsignedBigInt("000"), UnsignedBigInt.ZERO);
+    }
+    
+    @Test
+    public void testBitArrayConstructor_copies() {
+        BitArray bits = new BitArray();
+        bits.setBit(100, 1);
+        UnsignedBigInt x = new UnsignedBigInt(bits);
+        bits.clear();
+        assertEquals(x, UnsignedBigInt.ONE.shiftLeft(100));
+        assertEquals(x.compareTo(UnsignedBigInt.ONE.shiftLeft(100)), 0);
+        assertTrue(!x.equals(UnsignedBigInt.ZERO));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testStringConstructor_invalidDigit() {
+        new UnsignedBigInt("-12341234");
+    }
+    
     @Test
     public void testAdd() {
         assertEquals(a.add(b), new UnsignedBigInt("12341234123412341234123412341234123424682468"));
         assertEquals(b.add(a), new UnsignedBigInt("12341234123412341234123412341234123424682468"));
     }
     
+    @Test
+    public void testAdd_carryAcrossWords() {
+        UnsignedBigInt c = new UnsignedBigInt("340282366920938463463374607431768211455");
+        assertEquals(c.add(UnsignedBigInt.ONE), new UnsignedBigInt("340282366920938463463374607431768211456"));
+        assertEquals(UnsignedBigInt.ONE.add(c), new UnsignedBigInt("340282366920938463463374607431768211456"));
+    }
+    
+    @Test
+    public void testBitwise() {
+        assertEquals(a.and(b), new UnsignedBigInt("786930"));
+        assertEquals(a.or(b), b.add(a).subtract(a.and(b)));
+        assertEquals(a.xor(b), a.or(b).subtract(a.and(b)));
+        assertEquals(b.andNot(a), b.subtract(a.and(b)));
+        assertEquals(b.xor(b), UnsignedBigInt.ZERO);
+        assertEquals(UnsignedBigInt.ZERO.or(a), a);
+    }
+    
+    @Test
+    public void testBits() {
+        assertTrue(a.testBit(1));
+        assertTrue(!a.testBit(0));
+        assertTrue(!a.testBit(1000));
+        assertEquals(a.bitCount(), 15);
+        assertEquals(a.getLowestSetBit(), 1);
+        assertEquals(UnsignedBigInt.ZERO.getLowestSetBit(), -1);
+        assertEquals(a.flipBit(0), new UnsignedBigInt("12341235"));
+        assertEquals(a.flipBit(100).flipBit(100), a);
+    }
+    
+    @Test
+    public void testSmallValues_promoteOnOverflow() {
+        UnsignedBigInt max = new UnsignedBigInt("18446744073709551615");
+        assertEquals(max.add(UnsignedBigInt.ONE), new UnsignedBigInt("18446744073709551616"));
+        assertEquals(max.multiply(max), new UnsignedBigInt("340282366920938463426481119284349108225"));
+        assertEquals(max.add(UnsignedBigInt.ONE).subtract(UnsignedBigInt.ONE), max);
+        assertEquals(max.divide(UnsignedBigInt.TEN), new UnsignedBigInt("1844674407370955161"));
+        assertEquals(max.mod(b), max);
+        assertEquals(max.toString(), "18446744073709551615");
+        assertTrue(max.biggerThan(a));
+        assertTrue(max.smallerThan(b));
+    }
+    
     @Test
     public void testBiggerThan() {
         assertTrue(b.biggerThan(a));
@@ -47,12 +115,61 @@ public class UnsignedBigIntTest {
         assertTrue(a.equals(new UnsignedBigInt(a.toString())));
     }
     
+    @Test
+    public void testCompareTo() {
+        assertEquals(a.compareTo(b), -1);
+        assertEquals(b.compareTo(a), 1);
+        assertEquals(b.compareTo(new UnsignedBigInt(b.toString())), 0);
+        assertEquals(UnsignedBigInt.ZERO.compareTo(new UnsignedBigInt()), 0);
+    }
+    
+    @Test
+    public void testHashCode() {
+        assertEquals(b.hashCode(), new UnsignedBigInt(b.toString()).hashCode());
+        assertEquals(a.hashCode(), b.subtract(b.subtract(a)).hashCode());
+        Map<UnsignedBigInt, String> map = new HashMap<UnsignedBigInt, String>();
+        map.put(b, "b");
+        assertEquals(map.get(new UnsignedBigInt(b.toString())), "b");
+    }
+    
     @Test
     public void testDivide() {
         assertEquals(a.divide(a), new UnsignedBigInt("1"));
         assertEquals(b.divide(a), new UnsignedBigInt("1000000010000000100000001000000010000"));
     }
     
+    @Test
+    public void testDivide_multiWordDivisor() {
+        UnsignedBigInt c = new UnsignedBigInt("340282366920938463463374607431768211455");
+        UnsignedBigInt d = new UnsignedBigInt("18446744073709551617");
+        assertEquals(c.divide(d), new UnsignedBigInt("18446744073709551615"));
+        assertEquals(c.mod(d), UnsignedBigInt.ZERO);
+        assertEquals(b.divide(c), new UnsignedBigInt("36267"));
+        assertEquals(b.mod(c), new UnsignedBigInt("213522290665979697205453506185687502749"));
+    }
+    
+    @Test
+    public void testLongArithmetic() {
+        assertEquals(b.add(12341234L), new UnsignedBigInt("12341234123412341234123412341234123424682468"));
+        assertEquals(b.multiply(12341234L), new UnsignedBigInt("152306058165816581658165816581658165816581656642756"));
+        assertEquals(b.divideAndRemainder(12341234L)[0], new UnsignedBigInt("1000000010000000100000001000000010000"));
+        assertEquals(b.divideAndRemainder(12341234L)[1], new UnsignedBigInt("1234"));
+        assertEquals(b.mod(12341234L), 1234L);
+        assertEquals(b.mod(-1L), b.mod(new UnsignedBigInt("18446744073709551615")).longValue());
+        assertEquals(a.multiply(-1L), a.multiply(new UnsignedBigInt("18446744073709551615")));
+        assertEquals(new UnsignedBigInt(-1L).add(1L), new UnsignedBigInt("18446744073709551616"));
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testMod_byZeroLong() {
+        b.mod(0L);
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testDivide_byZero() {
+        a.divide(UnsignedBigInt.ZERO);
+    }
+    
     @Test
     public void testLongValue() {
         assertEquals(a.longValue(), 12341234L);
@@ -70,17 +187,45 @@ public class UnsignedBigIntTest {
         assertEquals(b.modPow(a, a), new UnsignedBigInt("1522756"));
     }
     
+    @Test
+    public void testModPow_oddModulus() {
+        UnsignedBigInt m = new UnsignedBigInt("340282366920938463463374607431768211507");
+        assertEquals(b.modPow(b, m), new UnsignedBigInt("75533007302177614958231456024187404137"));
+        assertEquals(b.modPow(UnsignedBigInt.ZERO, m), UnsignedBigInt.ONE);
+        assertEquals(b.modPow(b, UnsignedBigInt.ONE), UnsignedBigInt.ZERO);
+    }
+    
+    @Test
+    public void testModPow_evenModulus() {
+        UnsignedBigInt m = new UnsignedBigInt("340282366920938463463374607431768211456");
+        assertEquals(b.modPow(b, m), new UnsignedBigInt("0"));
+        assertEquals(b.modPow(UnsignedBigInt.ZERO, m), UnsignedBigInt.ONE);
+    }
+    
     @Test
     public void testMultiply_basecase() {
         assertEquals(a.multiply(a), new UnsignedBigInt("152306056642756"));
     }
     
+    @Test
+    public void testMultiply_carryAcrossWords() {
+        UnsignedBigInt c = new UnsignedBigInt("340282366920938463463374607431768211455");
+        assertEquals(c.multiply(c), new UnsignedBigInt("115792089237316195423570985008687907852589419931798687112530834793049593217025"));
+        assertEquals(c.multiply(UnsignedBigInt.ZERO), UnsignedBigInt.ZERO);
+    }
+    
     @Test
     public void testMultiply_karatsuba() {
         UnsignedBigInt c = new UnsignedBigInt("1552518092300708935148979488462502555256886017116696611139052038026050952686376886330878408828646477950487730697131073206171580044114814391444287275041181139204454976020849905550265285631598444825262999193716468750892846853816057855");
         assertEquals(c.multiply(c), new UnsignedBigInt("2410312426921032588580116606028314112912093247945688951359675039065257391591803200669085024107346049663448766280888004787862416978794958324969612987890774651455213339381625224770782077917681499676845543137387820057597345857904599106356350937498090094699856664417295567115701321048224206133690087915683964997615196447464774285761276110587297055818433175507740905485263500588072081099152785395963423140560695146462266635509081361999844936968295485071311052707201025"));
     }
     
+    @Test
+    public void testKaratsuba() {
+        UnsignedBigInt c = new UnsignedBigInt("1552518092300708935148979488462502555256886017116696611139052038026050952686376886330878408828646477950487730697131073206171580044114814391444287275041181139204454976020849905550265285631598444825262999193716468750892846853816057855");
+        assertEquals(c.karatsuba(c), new UnsignedBigInt("2410312426921032588580116606028314112912093247945688951359675039065257391591803200669085024107346049663448766280888004787862416978794958324969612987890774651455213339381625224770782077917681499676845543137387820057597345857904599106356350937498090094699856664417295567115701321048224206133690087915683964997615196447464774285761276110587297055818433175507740905485263500588072081099152785395963423140560695146462266635509081361999844936968295485071311052707201025"));
+    }
+    
     @Test
     public void testPow() {
        assertEquals(a.pow(new UnsignedBigInt("0")), new UnsignedBigInt("1"));
@@ -90,6 +235,90 @@ public class UnsignedBigIntTest {
        assertEquals(a.pow(new UnsignedBigInt("4")), new UnsignedBigInt("23197134890066399073807275536"));
     }
     
+    @Test
+    public void testPow_exponentUnchanged() {
+        UnsignedBigInt e = new UnsignedBigInt("5");
+        a.pow(e);
+        assertEquals(e, new UnsignedBigInt("5"));
+    }
+    
+    @Test
+    public void testGcd() {
+        assertEquals(a.gcd(b), new UnsignedBigInt("1234"));
+        assertEquals(b.gcd(b.multiply(a)), b);
+        assertEquals(a.gcd(UnsignedBigInt.ZERO), a);
+        assertEquals(UnsignedBigInt.ZERO.gcd(UnsignedBigInt.ZERO), UnsignedBigInt.ZERO);
+        assertEquals(new UnsignedBigInt("340282366920938463463374607431768211456").gcd(new UnsignedBigInt("18446744073709551616")), new UnsignedBigInt("18446744073709551616"));
+    }
+    
+    @Test
+    public void testModInverse() {
+        UnsignedBigInt odd = new UnsignedBigInt("170141183460469231731687303715884105727");
+        UnsignedBigInt even = new UnsignedBigInt("340282366920938463463374607431768211456");
+        assertEquals(b.multiply(b.modInverse(odd)).mod(odd), UnsignedBigInt.ONE);
+        assertEquals(odd.multiply(odd.modInverse(even)).mod(even), UnsignedBigInt.ONE);
+        assertEquals(UnsignedBigInt.ONE.modInverse(even), UnsignedBigInt.ONE);
+        assertEquals(a.modInverse(UnsignedBigInt.ONE), UnsignedBigInt.ZERO);
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testModInverse_notInvertible() {
+        a.modInverse(b);
+    }
+    
+    @Test
+    public void testIsProbablePrime() {
+        assertTrue(UnsignedBigInt.TWO.isProbablePrime(20));
+        assertTrue(new UnsignedBigInt("8191").isProbablePrime(20));
+        assertTrue(new UnsignedBigInt("170141183460469231731687303715884105727").isProbablePrime(20));
+        assertTrue(!UnsignedBigInt.ONE.isProbablePrime(20));
+        assertTrue(!a.isProbablePrime(20));
+        assertTrue(!new UnsignedBigInt("3215031751").isProbablePrime(20));
+        assertTrue(!new UnsignedBigInt("340282366920938463463374607431768211457").isProbablePrime(20));
+    }
+    
+    @Test
+    public void testProbablePrime() {
+        Random r = new Random(1);
+        for(int bits = 2; bits <= 200; bits += 11) {
+            UnsignedBigInt p = UnsignedBigInt.probablePrime(bits, r);
+            assertEquals(p.bitLength(), bits);
+            assertTrue(new BigInteger(p.toString()).isProbablePrime(50));
+        }
+        UnsignedBigInt p = UnsignedBigInt.probablePrime(256, r, true);
+        assertEquals(p.bitLength(), 256);
+        assertTrue(new BigInteger(p.toString()).isProbablePrime(50));
+    }
+    
+    @Test
+    public void testSquare() {
+        assertEquals(UnsignedBigInt.ZERO.square(), UnsignedBigInt.ZERO);
+        assertEquals(a.square(), new UnsignedBigInt("152306056642756"));
+        UnsignedBigInt max = new UnsignedBigInt("340282366920938463463374607431768211455");
+        assertEquals(max.square(), new UnsignedBigInt("115792089237316195423570985008687907852589419931798687112530834793049593217025"));
+    }
+    
+    @Test
+    public void testShiftLeft() {
+        assertEquals(a.shiftLeft(0), a);
+        assertEquals(a.shiftLeft(1), new UnsignedBigInt("24682468"));
+        assertEquals(b.shiftLeft(70), new UnsignedBigInt("14569957595412396723924552455245524552455245378852879291400585216"));
+        assertEquals(UnsignedBigInt.ZERO.shiftLeft(100), UnsignedBigInt.ZERO);
+    }
+    
+    @Test
+    public void testShiftRight() {
+        assertEquals(a.shiftRight(1), new UnsignedBigInt("6170617"));
+        assertEquals(b.shiftLeft(70).shiftRight(70), b);
+        assertEquals(b.shiftRight(128), new UnsignedBigInt("36267"));
+        assertEquals(a.shiftRight(64), UnsignedBigInt.ZERO);
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testShiftLeft_negativeDistance() {
+        a.shiftLeft(-1);
+    }
+    
     @Test
     public void testSmallerThan() {
         assertTrue(a.smallerThan(b));
@@ -97,16 +326,65 @@ public class UnsignedBigIntTest {
         assertTrue(!a.smallerThan(a));
     }
     
+    @Test
+    public void testSqrt() {
+        assertEquals(b.multiply(b).sqrt(), b);
+        assertEquals(b.multiply(b).subtract(UnsignedBigInt.ONE).sqrt(), b.subtract(UnsignedBigInt.ONE));
+        assertEquals(a.sqrt(), new UnsignedBigInt(3513));
+        assertEquals(UnsignedBigInt.ZERO.sqrt(), UnsignedBigInt.ZERO);
+        assertEquals(new UnsignedBigInt(3).sqrt(), UnsignedBigInt.ONE);
+    }
+    
+    @Test
+    public void testNthRoot() {
+        assertEquals(b.pow(new UnsignedBigInt(7)).nthRoot(7), b);
+        assertEquals(b.nthRoot(3), new UnsignedBigInt("231092684229382"));
+        assertEquals(b.nthRoot(1), b);
+        assertEquals(b.nthRoot(1000), UnsignedBigInt.ONE);
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testNthRoot_nonPositiveDegree() {
+        b.nthRoot(0);
+    }
+    
     @Test
     public void testSubtract() {
         assertEquals(b.subtract(a), new UnsignedBigInt("12341234123412341234123412341234123400000000"));
         assertEquals(a.subtract(a), new UnsignedBigInt("0"));
     }
     
+    @Test
+    public void testSubtract_borrowAcrossWords() {
+        UnsignedBigInt c = new UnsignedBigInt("340282366920938463463374607431768211456");
+        assertEquals(c.subtract(UnsignedBigInt.ONE), new UnsignedBigInt("340282366920938463463374607431768211455"));
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testSubtract_negativeDifference() {
+        a.subtract(b);
+    }
+    
     @Test
     public void testToString() {
         assertEquals(a.toString(), "12341234");
         assertEquals(b.toString(), "12341234123412341234123412341234123412341234");
+        assertEquals(UnsignedBigInt.ZERO.toString(), "0");
+    }
+    
+    @Test
+    public void testToString_powersOfTen() {
+        int threshold = UnsignedBigInt.RADIX_CONVERSION_THRESHOLD;
+        try {
+            UnsignedBigInt.RADIX_CONVERSION_THRESHOLD = 2;
+            StringBuilder sb = new StringBuilder("1");
+            for(int i = 0; i < 400; i++) {
+                sb.append('0');
+                assertEquals(new UnsignedBigInt(sb.toString()).toString(), sb.toString());
+            }
+        } finally {
+            UnsignedBigInt.RADIX_CONVERSION_THRESHOLD = threshold;
+        }
     }
     
 }
\ No newline at end of file